@@ -0,0 +1,52 @@
+package com.cong.async.benchmark;
+
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用 WorkerWrapper.Builder 搭图和编译 GraphPlan 的开销，不执行
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildBenchmark {
+
+    @Param({"8", "64", "512"})
+    public int size;
+
+    private WorkerWrapper<Object, Object> fanOut;
+
+    @Setup
+    public void setup() {
+        fanOut = Graphs.fanOut(size, Graphs.noop());
+    }
+
+    @Benchmark
+    public Object buildChain() {
+        return Graphs.chain(size, Graphs.noop());
+    }
+
+    @Benchmark
+    public Object buildFanOut() {
+        return Graphs.fanOut(size, Graphs.noop());
+    }
+
+    @Benchmark
+    public Object buildLayered() {
+        return Graphs.layered(size / 8, 8, 2, Graphs.noop());
+    }
+
+    @Benchmark
+    public GraphPlan compileFanOut() {
+        return GraphPlan.of(fanOut);
+    }
+}
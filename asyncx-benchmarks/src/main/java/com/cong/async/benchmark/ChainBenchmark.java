@@ -0,0 +1,58 @@
+package com.cong.async.benchmark;
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.wrapper.GraphPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 串行链的吞吐和延迟：每次重新搭图的老用法，以及编译一次反复执行的计划。
+ * callerRuns 为 true 时由调用线程执行整条链，没有线程切换
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChainBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int length;
+
+    @Param({"false", "true"})
+    public boolean callerRuns;
+
+    private AsyncEngine engine;
+
+    private GraphPlan plan;
+
+    @Setup
+    public void setup() {
+        AsyncEngine.Builder builder = AsyncEngine.builder().name("bench");
+        if (callerRuns) {
+            builder.callerRuns();
+        }
+        engine = builder.build();
+        plan = GraphPlan.of(Graphs.chain(length, Graphs.noop()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public boolean buildAndStart() throws Exception {
+        return engine.start(Graphs.TIMEOUT, Graphs.chain(length, Graphs.noop()));
+    }
+
+    @Benchmark
+    public Object startPlan() throws Exception {
+        return engine.start(Graphs.TIMEOUT, plan);
+    }
+}
@@ -0,0 +1,49 @@
+package com.cong.async.benchmark;
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.wrapper.GraphPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层的深 DAG，每层 8 个节点，每个节点连到下一层 2 个节点
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeepDagBenchmark {
+
+    private static final int WIDTH = 8;
+
+    private static final int FAN_OUT = 2;
+
+    @Param({"8", "32"})
+    public int depth;
+
+    private AsyncEngine engine;
+
+    private GraphPlan plan;
+
+    @Setup
+    public void setup() {
+        engine = AsyncEngine.builder().name("bench").build();
+        plan = GraphPlan.of(Graphs.layered(depth, WIDTH, FAN_OUT, Graphs.noop()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public Object startPlan() throws Exception {
+        return engine.start(Graphs.TIMEOUT, plan);
+    }
+}
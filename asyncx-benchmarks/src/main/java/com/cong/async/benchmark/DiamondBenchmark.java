@@ -0,0 +1,50 @@
+package com.cong.async.benchmark;
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.wrapper.GraphPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 菱形 A -> B、C -> D，覆盖多依赖汇合(doDependsMoreJob)的必须依赖和任意依赖两种情况
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiamondBenchmark {
+
+    @Param({"true", "false"})
+    public boolean must;
+
+    private AsyncEngine engine;
+
+    private GraphPlan plan;
+
+    @Setup
+    public void setup() {
+        engine = AsyncEngine.builder().name("bench").build();
+        plan = GraphPlan.of(Graphs.diamond(must, Graphs.noop()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public boolean buildAndStart() throws Exception {
+        return engine.start(Graphs.TIMEOUT, Graphs.diamond(must, Graphs.noop()));
+    }
+
+    @Benchmark
+    public Object startPlan() throws Exception {
+        return engine.start(Graphs.TIMEOUT, plan);
+    }
+}
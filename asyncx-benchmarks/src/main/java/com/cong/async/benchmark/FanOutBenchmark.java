@@ -0,0 +1,50 @@
+package com.cong.async.benchmark;
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.wrapper.GraphPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扇出再汇合：一个起点结束后派发 width 个下游(beginNext)，再由最后一个结束的下游推进汇合节点
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int width;
+
+    private AsyncEngine engine;
+
+    private GraphPlan plan;
+
+    @Setup
+    public void setup() {
+        engine = AsyncEngine.builder().name("bench").build();
+        plan = GraphPlan.of(Graphs.fanOut(width, Graphs.noop()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public boolean buildAndStart() throws Exception {
+        return engine.start(Graphs.TIMEOUT, Graphs.fanOut(width, Graphs.noop()));
+    }
+
+    @Benchmark
+    public Object startPlan() throws Exception {
+        return engine.start(Graphs.TIMEOUT, plan);
+    }
+}
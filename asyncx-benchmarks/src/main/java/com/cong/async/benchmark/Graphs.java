@@ -0,0 +1,107 @@
+package com.cong.async.benchmark;
+
+import com.cong.async.callback.IWorker;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基准测试用的 worker 和各种形状的图
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+final class Graphs {
+
+    /**
+     * 整组超时，基准测试中不应该触发
+     */
+    static final long TIMEOUT = 10_000;
+
+    private Graphs() {
+
+    }
+
+    /**
+     * 什么也不做的 worker，用来测框架本身的开销
+     */
+    static IWorker<Object, Object> noop() {
+        return (Object object, Map<String, WorkerWrapper> allWrappers) -> object;
+    }
+
+    /**
+     * 阻塞指定微秒数的 worker，模拟 rpc 调用
+     */
+    static IWorker<Object, Object> sleep(long micros) {
+        return (Object object, Map<String, WorkerWrapper> allWrappers) -> {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+            return object;
+        };
+    }
+
+    static WorkerWrapper.Builder<Object, Object> node(IWorker<Object, Object> worker) {
+        return new WorkerWrapper.Builder<Object, Object>().worker(worker).param(Boolean.TRUE);
+    }
+
+    /**
+     * 长度为 length 的串行链，返回起点
+     */
+    static WorkerWrapper<Object, Object> chain(int length, IWorker<Object, Object> worker) {
+        WorkerWrapper<Object, Object> current = node(worker).build();
+        for (int i = 1; i < length; i++) {
+            current = node(worker).next(current).build();
+        }
+        return current;
+    }
+
+    /**
+     * 起点 -> width 个并行节点 -> 汇合节点(必须等待全部)，返回起点
+     */
+    static WorkerWrapper<Object, Object> fanOut(int width, IWorker<Object, Object> worker) {
+        WorkerWrapper<Object, Object> join = node(worker).build();
+        WorkerWrapper<?, ?>[] middle = new WorkerWrapper<?, ?>[width];
+        for (int i = 0; i < width; i++) {
+            middle[i] = node(worker).next(join).build();
+        }
+        return node(worker).next(middle).build();
+    }
+
+    /**
+     * A -> B、C -> D，must 决定 D 是必须等待 B、C 全部完成，还是任何一个完成即可
+     */
+    static WorkerWrapper<Object, Object> diamond(boolean must, IWorker<Object, Object> worker) {
+        WorkerWrapper<Object, Object> d = node(worker).build();
+        WorkerWrapper<Object, Object> b = node(worker).next(d, must).build();
+        WorkerWrapper<Object, Object> c = node(worker).next(d, must).build();
+        return node(worker).next(b, c).build();
+    }
+
+    /**
+     * 分层的深 DAG：depth 层，每层 width 个节点，每个节点连到下一层 fanOut 个节点(固定随机种子)，
+     * 下一层的每个节点至少有一个上游。返回连接第一层全部节点的起点
+     */
+    static WorkerWrapper<Object, Object> layered(int depth, int width, int fanOut, IWorker<Object, Object> worker) {
+        Random random = new Random(42);
+        List<WorkerWrapper<Object, Object>> below = new ArrayList<>();
+        for (int i = 0; i < width; i++) {
+            below.add(node(worker).build());
+        }
+        for (int layer = 1; layer < depth; layer++) {
+            List<WorkerWrapper<Object, Object>> current = new ArrayList<>(width);
+            for (int i = 0; i < width; i++) {
+                WorkerWrapper.Builder<Object, Object> builder = node(worker).next(below.get(i));
+                for (int k = 1; k < fanOut; k++) {
+                    builder.next(below.get(random.nextInt(width)));
+                }
+                current.add(builder.build());
+            }
+            below = current;
+        }
+        return node(worker).next(below.toArray(new WorkerWrapper<?, ?>[0])).build();
+    }
+}
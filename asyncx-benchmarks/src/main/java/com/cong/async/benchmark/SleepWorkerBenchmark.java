@@ -0,0 +1,47 @@
+package com.cong.async.benchmark;
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.wrapper.GraphPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟 rpc 的阻塞 worker：扇出的每个节点阻塞 1 毫秒，关键路径为 3 毫秒，超出的部分就是调度开销。
+ * 多个线程同时执行，观察线程池在并发下的延迟分布
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class SleepWorkerBenchmark {
+
+    @Param({"4", "16"})
+    public int width;
+
+    private AsyncEngine engine;
+
+    private GraphPlan plan;
+
+    @Setup
+    public void setup() {
+        engine = AsyncEngine.builder().name("bench").build();
+        plan = GraphPlan.of(Graphs.fanOut(width, Graphs.sleep(1000)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public Object startPlan() throws Exception {
+        return engine.start(Graphs.TIMEOUT, plan);
+    }
+}
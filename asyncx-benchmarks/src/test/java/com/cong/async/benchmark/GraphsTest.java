@@ -0,0 +1,55 @@
+package com.cong.async.benchmark;
+
+
+import com.cong.async.callback.IWorker;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.worker.ResultState;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基准测试中的各种图在计时之前先确认形状和执行结果：节点数符合预期，每个节点最多执行一次。
+ * 任意一个完成即可的菱形中，D 先完成后另一条分支会因为下游已经结束而跳过，所以可能只有 3 个节点执行
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class GraphsTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("bench-check").build();
+        AtomicInteger runs = new AtomicInteger();
+        IWorker<Object, Object> counting = (Object object, Map<String, WorkerWrapper> allWrappers) -> {
+            runs.incrementAndGet();
+            return object;
+        };
+
+        check(engine, runs, "chain", Graphs.chain(64, counting), 64);
+        check(engine, runs, "fanOut", Graphs.fanOut(16, counting), 18);
+        check(engine, runs, "diamond(must)", Graphs.diamond(true, counting), 4);
+        check(engine, runs, "diamond(any)", Graphs.diamond(false, counting), 4);
+        check(engine, runs, "layered", Graphs.layered(8, 16, 3, counting), 8 * 16 + 1);
+        check(engine, null, "sleep chain", Graphs.chain(4, Graphs.sleep(1000)), 4);
+        engine.shutdown();
+    }
+
+    private static void check(AsyncEngine engine, AtomicInteger runs, String name, WorkerWrapper<Object, Object> root,
+                              int expectedSize) throws Exception {
+        GraphPlan plan = GraphPlan.of(root);
+        if (runs != null) {
+            runs.set(0);
+        }
+        ExecutionContext context = engine.start(Graphs.TIMEOUT, plan);
+        int success = 0;
+        for (int i = 0; i < plan.size(); i++) {
+            if (context.getWorkResult(i).getResultState() == ResultState.SUCCESS) {
+                success++;
+            }
+        }
+        System.out.println(name + ": size=" + plan.size() + "/" + expectedSize + " success=" + success
+                + (runs == null ? "" : " runs=" + runs.get()));
+    }
+}
@@ -0,0 +1,159 @@
+package com.cong.async.batch;
+
+import com.cong.async.callback.IBatchWorker;
+import com.cong.async.executor.WorkStealingExecutor;
+import com.cong.async.executor.time.HashedWheelTimer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把对同一个 {@link IBatchWorker} 的调用攒成批次，由引擎为每个 worker 实例创建一个
+ * <p>
+ * 第一个 key 到达时开始一个批次，并在时间轮上登记窗口到期；窗口到期或者 key 数量达到上限时整批发出，
+ * 在线程池上调用一次 batchAction，结果按顺序完成每个 key 的 future。相同的 key 在一批中只请求一次。
+ * batchAction 总是被当作会阻塞的调用，通过 {@link WorkStealingExecutor#block} 执行
+ *
+ * @param <K> 入参
+ * @param <V> 结果
+ * @author cong
+ * @date 2026/10/18
+ */
+public class BatchLoader<K, V> {
+
+    private final IBatchWorker<K, V> worker;
+
+    private final HashedWheelTimer timer;
+
+    private final ExecutorService executorService;
+
+    /**
+     * 正在攒的批次，只在持有 this 锁时读写
+     */
+    private Batch<K, V> current;
+
+    /**
+     * 发出的批次数
+     */
+    private final LongAdder batchCount = new LongAdder();
+
+    /**
+     * 发出的 key 数(去重后)
+     */
+    private final LongAdder keyCount = new LongAdder();
+
+    /**
+     * @param timer           触发窗口到期的时间轮
+     * @param executorService 执行 batchAction 的线程池
+     */
+    public BatchLoader(IBatchWorker<K, V> worker, HashedWheelTimer timer, ExecutorService executorService) {
+        this.worker = worker;
+        this.timer = timer;
+        this.executorService = executorService;
+    }
+
+    /**
+     * 把 key 加入当前批次
+     *
+     * @return 这一批执行完后完成的 future
+     */
+    public CompletableFuture<V> load(K key) {
+        Batch<K, V> full = null;
+        CompletableFuture<V> future;
+        synchronized (this) {
+            Batch<K, V> batch = current;
+            if (batch == null) {
+                batch = new Batch<>();
+                current = batch;
+                Batch<K, V> window = batch;
+                batch.windowTask = timer.newTimeout(() -> flush(window), worker.batchWindow(), TimeUnit.MILLISECONDS);
+            }
+            future = batch.futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (batch.futures.size() >= worker.maxBatchSize()) {
+                current = null;
+                full = batch;
+            }
+        }
+        if (full != null) {
+            full.windowTask.cancel();
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * 窗口到期，在时间轮线程上调用。批次已经因为凑满发出时什么都不做
+     */
+    private void flush(Batch<K, V> batch) {
+        synchronized (this) {
+            if (current != batch) {
+                return;
+            }
+            current = null;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        Runnable task = () -> execute(batch);
+        try {
+            executorService.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private void execute(Batch<K, V> batch) {
+        List<K> keys = new ArrayList<>(batch.futures.keySet());
+        batchCount.increment();
+        keyCount.add(keys.size());
+        List<V> values;
+        try {
+            //批量调用一般是 rpc、数据库查询，在工作窃取线程池上执行时阻塞期间补充线程
+            values = WorkStealingExecutor.block(() -> worker.batchAction(keys));
+            if (values == null || values.size() != keys.size()) {
+                throw new IllegalStateException("batchAction returned " + (values == null ? "null" : values.size() + " results")
+                        + " for " + keys.size() + " keys");
+            }
+        } catch (Throwable e) {
+            for (CompletableFuture<V> future : batch.futures.values()) {
+                future.completeExceptionally(e);
+            }
+            return;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            batch.futures.get(keys.get(i)).complete(values.get(i));
+        }
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getKeyCount() {
+        return keyCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchLoader{" +
+                "batches=" + getBatchCount() +
+                ", keys=" + getKeyCount() +
+                '}';
+    }
+
+    /**
+     * 一个批次，key 按到达顺序排列
+     */
+    private static final class Batch<K, V> {
+        private final Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        private HashedWheelTimer.Timeout windowTask;
+    }
+}
@@ -0,0 +1,155 @@
+package com.cong.async.cache;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 合并并发的相同调用，通过 {@link com.cong.async.wrapper.WorkerWrapper.Builder#singleFlight(SingleFlight)} 给节点开启
+ * <p>
+ * 同一时刻 key 相同的多个节点(可以属于不同的执行)只有第一个真正执行 action，其余的登记在它的 future 上后立即让出线程，
+ * 第一个结束后，所有等待的节点都以同一个结果(或同一个异常)结束，不会有线程阻塞等待。
+ * 调用结束后 key 立即从表中移除，之后的调用会重新执行。
+ * <p>
+ * 执行者自己超时、被停止或被中断时，它的结果只对它自己有效，不会分给等待者：执行者通过 {@link #abandon} 放弃这次调用，
+ * 等待者收到 {@link #isAbandoned(Throwable)} 为 true 的异常后重新尝试，其中一个成为新的执行者
+ *
+ * @param <T> worker 的入参类型
+ * @param <V> worker 的结果类型
+ * @author cong
+ * @date 2026/10/18
+ */
+public class SingleFlight<T, V> {
+
+    /**
+     * 执行者放弃调用时交给等待者的异常，所有放弃的调用共用一个
+     */
+    private static final CancellationException ABANDONED = new Abandoned();
+
+    private final ConcurrentHashMap<Object, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Function<? super T, ?> keyFunction;
+
+    /**
+     * 真正执行的次数
+     */
+    private final LongAdder executionCount = new LongAdder();
+
+    /**
+     * 合并到别人的调用上的次数
+     */
+    private final LongAdder sharedCount = new LongAdder();
+
+    public SingleFlight() {
+        this(null);
+    }
+
+    /**
+     * @param keyFunction 从入参计算 key，为 null 时直接用入参作为 key。返回 null 表示这次不合并
+     */
+    public SingleFlight(Function<? super T, ?> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    private Object keyOf(T param) {
+        return keyFunction == null ? param : keyFunction.apply(param);
+    }
+
+    /**
+     * 尝试成为 key 的执行者
+     *
+     * @param param  入参
+     * @param flight 自己的调用，成为执行者时登记到表中，由自己执行完后传给 {@link #finish}
+     * @return 成为执行者时返回 null；已经有相同的调用在执行时返回它的 future
+     */
+    public CompletableFuture<V> tryLead(T param, CompletableFuture<V> flight) {
+        Object key = keyOf(param);
+        if (key == null) {
+            executionCount.increment();
+            return null;
+        }
+        CompletableFuture<V> current = inFlight.putIfAbsent(key, flight);
+        if (current == null) {
+            executionCount.increment();
+            return null;
+        }
+        sharedCount.increment();
+        return current;
+    }
+
+    /**
+     * 执行者结束调用，先从表中移除，再把结果交给所有等待者
+     */
+    public void finish(T param, CompletableFuture<V> flight, V value, Throwable ex) {
+        Object key = keyOf(param);
+        if (key != null) {
+            inFlight.remove(key, flight);
+        }
+        if (ex == null) {
+            flight.complete(value);
+        } else {
+            flight.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * 执行者放弃调用，先从表中移除，再通知所有等待者重新尝试
+     */
+    public void abandon(T param, CompletableFuture<V> flight) {
+        Object key = keyOf(param);
+        if (key != null) {
+            inFlight.remove(key, flight);
+        }
+        flight.completeExceptionally(ABANDONED);
+    }
+
+    /**
+     * 等待的调用是否被执行者放弃了，放弃时等待者应该重新调用 {@link #tryLead}
+     */
+    public static boolean isAbandoned(Throwable ex) {
+        if (ex instanceof CompletionException) {
+            ex = ex.getCause();
+        }
+        return ex == ABANDONED;
+    }
+
+    /**
+     * 正在执行中的调用数量
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getExecutionCount() {
+        return executionCount.sum();
+    }
+
+    public long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlight{" +
+                "inFlight=" + inFlightCount() +
+                ", execution=" + getExecutionCount() +
+                ", shared=" + getSharedCount() +
+                '}';
+    }
+
+    private static final class Abandoned extends CancellationException {
+        private static final long serialVersionUID = 1L;
+
+        private Abandoned() {
+            super("single flight abandoned by its leader");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
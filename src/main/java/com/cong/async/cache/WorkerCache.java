@@ -0,0 +1,289 @@
+package com.cong.async.cache;
+
+import com.cong.async.executor.time.Clock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * worker 结果的缓存，通过 {@link com.cong.async.wrapper.WorkerWrapper.Builder#cache(WorkerCache)} 给节点开启
+ * <p>
+ * 按入参(或 keyFunction 算出的 key)缓存成功的结果，命中时节点直接以 SUCCESS 结束，不执行 action，也不会被派发到线程池。
+ * 容量有上限，按 LRU 淘汰；可以设置写入后的过期时间。内部分成多个段，每段一把锁，段内是按访问顺序排列的 LinkedHashMap。
+ * 每段至少能放 {@value #MIN_SEGMENT_CAPACITY} 个结果，容量较小的缓存只有一段，是精确的 LRU；分段后 LRU 只在段内成立
+ * <p>
+ * 同一个缓存只应该给同一种 worker 使用，可以被多个图中的 wrapper 共享
+ *
+ * @param <T> worker 的入参类型
+ * @param <V> worker 的结果类型
+ * @author cong
+ * @date 2026/10/18
+ */
+public class WorkerCache<T, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * 每段的最小容量，避免容量小的缓存被切成很多只能放一两个结果的段
+     */
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final Segment<V>[] segments;
+
+    private final int mask;
+
+    private final long ttlNanos;
+
+    private final Function<? super T, ?> keyFunction;
+
+    private final Clock clock;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    private WorkerCache(Builder<T, V> builder) {
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && (long) segmentCount * 2 * MIN_SEGMENT_CAPACITY <= builder.maximumSize) {
+            segmentCount <<= 1;
+        }
+        int capacity = (int) ((builder.maximumSize + segmentCount - 1) / segmentCount);
+        this.segments = (Segment<V>[]) new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(capacity, evictionCount);
+        }
+        this.mask = segmentCount - 1;
+        this.ttlNanos = builder.ttlNanos;
+        this.keyFunction = builder.keyFunction;
+        this.clock = builder.clock;
+    }
+
+    public static <T, V> Builder<T, V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 入参对应的 key，为 null 时不缓存
+     */
+    private Object keyOf(T param) {
+        return keyFunction == null ? param : keyFunction.apply(param);
+    }
+
+    private Segment<V> segmentOf(Object key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    /**
+     * 查找入参对应的结果，计入命中和未命中次数
+     *
+     * @return 命中时返回缓存项，未命中或已过期时返回 null
+     */
+    public Entry<V> lookup(T param) {
+        Object key = keyOf(param);
+        if (key == null) {
+            return null;
+        }
+        Entry<V> entry = segmentOf(key).get(key, clock.nanoTime());
+        if (entry == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * 入参对应的结果是否在缓存中，不计入统计
+     */
+    public boolean contains(T param) {
+        Object key = keyOf(param);
+        return key != null && segmentOf(key).get(key, clock.nanoTime()) != null;
+    }
+
+    /**
+     * 缓存一个成功的结果
+     */
+    public void put(T param, V value) {
+        Object key = keyOf(param);
+        if (key != null) {
+            segmentOf(key).put(key, new Entry<>(value, ttlNanos > 0 ? clock.nanoTime() + ttlNanos : 0));
+        }
+    }
+
+    /**
+     * 移除入参对应的结果
+     */
+    public void invalidate(T param) {
+        Object key = keyOf(param);
+        if (key != null) {
+            segmentOf(key).remove(key);
+        }
+    }
+
+    /**
+     * 清空缓存，不影响统计
+     */
+    public void invalidateAll() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 当前缓存的数量，包括已过期但还没有被清除的
+     */
+    public long size() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerCache{" +
+                "size=" + size() +
+                ", hit=" + getHitCount() +
+                ", miss=" + getMissCount() +
+                ", eviction=" + getEvictionCount() +
+                '}';
+    }
+
+    /**
+     * 缓存项
+     */
+    public static final class Entry<V> {
+        private final V value;
+        /**
+         * 过期时间，为 0 表示不过期
+         */
+        private final long expireAt;
+
+        private Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        private boolean isExpired(long now) {
+            return expireAt != 0 && now - expireAt >= 0;
+        }
+    }
+
+    /**
+     * 一段 LRU，按访问顺序排列，超过容量时淘汰最久没有访问的
+     */
+    private static final class Segment<V> {
+        private final LinkedHashMap<Object, WorkerCache.Entry<V>> map;
+
+        private Segment(int capacity, LongAdder evictionCount) {
+            this.map = new LinkedHashMap<Object, WorkerCache.Entry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, WorkerCache.Entry<V>> eldest) {
+                    if (size() > capacity) {
+                        evictionCount.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized Entry<V> get(Object key, long now) {
+            Entry<V> entry = map.get(key);
+            if (entry != null && entry.isExpired(now)) {
+                map.remove(key);
+                return null;
+            }
+            return entry;
+        }
+
+        private synchronized void put(Object key, Entry<V> entry) {
+            map.put(key, entry);
+        }
+
+        private synchronized void remove(Object key) {
+            map.remove(key);
+        }
+
+        private synchronized void clear() {
+            map.clear();
+        }
+
+        private synchronized int size() {
+            return map.size();
+        }
+    }
+
+    public static class Builder<T, V> {
+        private long maximumSize = 10_000;
+        private long ttlNanos;
+        private Function<? super T, ?> keyFunction;
+        private Clock clock = Clock.system();
+
+        /**
+         * 最多缓存多少个结果，默认 10000
+         */
+        public Builder<T, V> maximumSize(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be greater than 0");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * 写入后多久过期，不设置时不过期，只按容量淘汰
+         */
+        public Builder<T, V> expireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("duration must not be negative");
+            }
+            this.ttlNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * 从入参计算 key，不设置时直接用入参作为 key。返回 null 表示这次不使用缓存
+         */
+        public Builder<T, V> keyFunction(Function<? super T, ?> keyFunction) {
+            this.keyFunction = keyFunction;
+            return this;
+        }
+
+        /**
+         * 判断过期用的时钟，默认 {@link Clock#system()}
+         */
+        public Builder<T, V> clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public WorkerCache<T, V> build() {
+            return new WorkerCache<>(this);
+        }
+    }
+}
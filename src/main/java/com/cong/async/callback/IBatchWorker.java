@@ -0,0 +1,52 @@
+package com.cong.async.callback;
+
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 可以批量执行的 worker，适合后端有批量接口的按 id 查询
+ * <p>
+ * 使用它的节点不会各自调用 action，同一个引擎里所有正在执行的图中，使用同一个 worker 实例的节点
+ * 会在一个很短的时间窗口或者凑满一批后合并成一次 {@link #batchAction(List)}，结果再按顺序分给各个节点。
+ * 等待批次期间节点不占用线程
+ *
+ * @param <K> 入参，即批量接口的 key
+ * @param <V> 单个 key 的结果
+ * @author cong
+ * @date 2026/10/18
+ */
+public interface IBatchWorker<K, V> extends IWorker<K, V> {
+
+    /**
+     * 批量执行，一批中相同的 key 只会出现一次
+     *
+     * @param keys 这一批的入参
+     * @return 与 keys 一一对应、顺序相同的结果，数量不一致时这一批的节点都以异常结束
+     */
+    List<V> batchAction(List<K> keys);
+
+    /**
+     * 单独调用时退化为只有一个 key 的批次
+     */
+    @Override
+    default V action(K key, Map<String, WorkerWrapper> allWrappers) {
+        return batchAction(Collections.singletonList(key)).get(0);
+    }
+
+    /**
+     * 一批最多的 key 数量，凑满后立即发出
+     */
+    default int maxBatchSize() {
+        return 128;
+    }
+
+    /**
+     * 第一个 key 到达后等待的毫秒数，到期后不论多少都发出。实际精度受引擎时间轮的 tick 限制
+     */
+    default long batchWindow() {
+        return 1;
+    }
+}
@@ -0,0 +1,47 @@
+package com.cong.async.callback;
+
+import com.cong.async.worker.ResultKey;
+import com.cong.async.worker.WorkResult;
+import com.cong.async.worker.WorkerContext;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Map;
+
+/**
+ * 基于执行上下文的 worker，通过 {@link com.cong.async.worker.ResultKey} 读取上游结果
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@FunctionalInterface
+public interface IContextWorker<T, V> extends IWorker<T, V> {
+
+    /**
+     * 在这里做耗时操作，如rpc请求、IO等
+     *
+     * @param object  object
+     * @param context 本次执行的上下文
+     */
+    @Override
+    V action(T object, WorkerContext context);
+
+    /**
+     * 只有 wrapper 集合时(如在框架外直接调用)，按 ResultKey 的 id 从集合中的 wrapper 上读取结果
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    default V action(T object, Map<String, WorkerWrapper> allWrappers) {
+        return action(object, new WorkerContext() {
+            @Override
+            public <R> WorkResult<R> getWorkResult(ResultKey<R> key) {
+                WorkerWrapper wrapper = allWrappers == null ? null : allWrappers.get(key.getId());
+                return wrapper == null ? null : (WorkResult<R>) wrapper.getWorkResult();
+            }
+
+            @Override
+            public Map<String, WorkerWrapper> getForParamUseWrappers() {
+                return allWrappers;
+            }
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package com.cong.async.callback;
 
+import com.cong.async.worker.WorkerContext;
 import com.cong.async.wrapper.WorkerWrapper;
 
 import java.util.Map;
@@ -21,6 +22,16 @@ public interface IWorker<T, V> {
      */
     V action(T object, Map<String, WorkerWrapper> allWrappers);
 
+    /**
+     * 框架实际调用的入口，默认转调基于 Map 的 action，需要用 ResultKey 读取上游结果的实现 {@link IContextWorker}
+     *
+     * @param object  object
+     * @param context 本次执行的上下文
+     */
+    default V action(T object, WorkerContext context) {
+        return action(object, context.getForParamUseWrappers());
+    }
+
     /**
      * 超时、异常时，返回的默认值
      *
@@ -0,0 +1,21 @@
+package com.cong.async.exception;
+
+/**
+ * 任务在执行 action 之前被拒绝(如超过并发限制、线程池拒绝了派发)时，结果中记录该exception
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class RejectedException extends RuntimeException {
+    public RejectedException() {
+        super();
+    }
+
+    public RejectedException(String message) {
+        super(message);
+    }
+
+    public RejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
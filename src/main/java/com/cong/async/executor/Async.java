@@ -1,15 +1,18 @@
 package com.cong.async.executor;
 
-import com.cong.async.callback.DefaultGroupCallback;
 import com.cong.async.callback.IGroupCallback;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
 import com.cong.async.wrapper.WorkerWrapper;
 
-import java.util.*;
+import java.util.List;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
 /**
  * 类入口，可以根据自己情况调整 core 线程的数量
+ * <p>
+ * 静态方法都委托给默认引擎 {@link #getDefaultEngine()}，需要隔离线程池时请自己创建 {@link AsyncEngine}
  *
  * @author cong
  * @date 2024/04/28
@@ -19,13 +22,9 @@ public class Async {
 
     }
     /**
-     * 默认不定长线程池
+     * 默认引擎，使用一个不定长线程池 COMMON_POOL。第一次使用时创建，{@link #shutDown()} 关闭后下次使用时重新创建
      */
-    private static final ThreadPoolExecutor COMMON_POOL = (ThreadPoolExecutor) Executors.newCachedThreadPool();
-    /**
-     * 注意，这里是个static，也就是只能有一个线程池。用户自定义线程池时，也只能定义一个
-     */
-    private static ExecutorService executorService;
+    private static volatile AsyncEngine defaultEngine;
 
     /**
      * 开始
@@ -38,51 +37,68 @@ public class Async {
      * @throws InterruptedException 中断异常
      */
     public static boolean start(long timeout, ExecutorService executor, List<WorkerWrapper> workerWrappers) throws ExecutionException, InterruptedException {
-        if(workerWrappers == null || workerWrappers.isEmpty()) {
-            return false;
-        }
-        //保存线程池变量
-        Async.executorService = executor;
-        //定义一个map，存放所有的wrapper，key为wrapper的唯一id，value是该wrapper，可以从value中获取wrapper的result
-        Map<String, WorkerWrapper> forParamUseWrappers = new ConcurrentHashMap<>();
-        CompletableFuture[] futures = new CompletableFuture[workerWrappers.size()];
+        return getDefaultEngine().start(timeout, executor, workerWrappers);
+    }
 
+    /**
+     * 执行一个编译好的计划，同一个计划可以被多次、并发地执行，每次执行的结果从返回的上下文中获取
+     *
+     * @param timeout  超时
+     * @param executor 执行者
+     * @param plan     执行计划
+     * @return 本次执行的上下文
+     * @throws ExecutionException   执行异常
+     * @throws InterruptedException 中断异常
+     */
+    public static ExecutionContext start(long timeout, ExecutorService executor, GraphPlan plan) throws ExecutionException, InterruptedException {
+        return getDefaultEngine().start(timeout, executor, plan);
+    }
 
-        //遍历workerWrappers，创建CompletableFuture，并添加到futures数组中
-        for (int i = 0; i < workerWrappers.size(); i++) {
-            WorkerWrapper wrapper = workerWrappers.get(i);
-            futures[i] = CompletableFuture.runAsync(() -> wrapper.work(executor,timeout,forParamUseWrappers), executor);
-        }
+    /**
+     * 执行计划(默认线程池)
+     */
+    public static ExecutionContext start(long timeout, GraphPlan plan) throws ExecutionException, InterruptedException {
+        return getDefaultEngine().start(timeout, plan);
+    }
 
-        try {
-            CompletableFuture.allOf(futures).get(timeout, TimeUnit.MILLISECONDS);
-            return true;
-        } catch (TimeoutException e) {
-            Set<WorkerWrapper> set = new HashSet<>();
-            totalWorkers(workerWrappers, set);
-            for (WorkerWrapper wrapper : set) {
-                wrapper.stopNow();
-            }
-            return false;
-        }
+    /**
+     * 执行计划(默认线程池)，超时使用指定的单位
+     */
+    public static ExecutionContext start(long timeout, TimeUnit unit, GraphPlan plan) throws ExecutionException, InterruptedException {
+        return getDefaultEngine().start(timeout, unit, plan);
+    }
+
+    /**
+     * 执行一个创建好的上下文，可以在执行前通过 {@link ExecutionContext#setParam(int, Object)} 设置本次的入参
+     *
+     * @param context 本次执行的上下文
+     * @return 是否在超时前全部执行完毕
+     * @throws ExecutionException   执行异常
+     * @throws InterruptedException 中断异常
+     */
+    public static boolean start(ExecutionContext context) throws ExecutionException, InterruptedException {
+        return getDefaultEngine().start(context);
     }
 
     /**
      * 如果想自定义线程池，请传 pool。不自定义的话，就走默认的 COMMON_POOL
      */
     public static boolean start(long timeout, ExecutorService executorService, WorkerWrapper... workerWrapper) throws ExecutionException, InterruptedException {
-        if(workerWrapper == null || workerWrapper.length == 0) {
-            return false;
-        }
-        List<WorkerWrapper> workerWrappers =  Arrays.stream(workerWrapper).collect(Collectors.toList());
-        return start(timeout, executorService, workerWrappers);
+        return getDefaultEngine().start(timeout, executorService, workerWrapper);
     }
 
     /**
      * 同步阻塞,直到所有都完成,或失败（用默认线程池）
      */
     public static boolean start(long timeout, WorkerWrapper... workerWrapper) throws ExecutionException, InterruptedException {
-        return start(timeout, COMMON_POOL, workerWrapper);
+        return getDefaultEngine().start(timeout, workerWrapper);
+    }
+
+    /**
+     * 同步阻塞,直到所有都完成,或失败（用默认线程池），超时使用指定的单位
+     */
+    public static boolean start(long timeout, TimeUnit unit, WorkerWrapper... workerWrapper) throws ExecutionException, InterruptedException {
+        return getDefaultEngine().start(timeout, unit, workerWrapper);
     }
 
     /**
@@ -91,57 +107,77 @@ public class Async {
      * @param timeout       超时
      * @param groupCallback 群组回调
      * @param workerWrapper 工作器包装器
+     * @return 整组执行结束或超时后完成的 future
      */
-    public static void startAsync(long timeout, IGroupCallback groupCallback, WorkerWrapper... workerWrapper) {
-        startAsync(timeout, COMMON_POOL, groupCallback, workerWrapper);
+    public static CompletableFuture<GraphResult> startAsync(long timeout, IGroupCallback groupCallback, WorkerWrapper... workerWrapper) {
+        return getDefaultEngine().startAsync(timeout, groupCallback, workerWrapper);
     }
 
     /**
      * 异步执行,直到所有都完成,或失败后，发起回调
+     * <p>
+     * 不会有线程等待这一组执行，future 由最后一个结束的 wrapper 或者超时定时器完成
      */
-    public static void startAsync(long timeout, ExecutorService executorService, IGroupCallback groupCallback, WorkerWrapper... workerWrapper) {
-        if (groupCallback == null) {
-            groupCallback = new DefaultGroupCallback();
-        }
-        IGroupCallback finalGroupCallback = groupCallback;
-        if (executorService != null){
-            executorService.execute(() -> {
-                try {
-                    boolean success = start(timeout, executorService, workerWrapper);
-                    if (success) {
-                        finalGroupCallback.success(Arrays.asList(workerWrapper));
-                    }else{
-                        finalGroupCallback.failure(Arrays.asList(workerWrapper), new TimeoutException("超时"));
-                    }
-                } catch (ExecutionException | InterruptedException e) {
-                    e.printStackTrace();
-                    finalGroupCallback.failure(Arrays.asList(workerWrapper), e);
-                }
-            });
-        }
+    public static CompletableFuture<GraphResult> startAsync(long timeout, ExecutorService executorService, IGroupCallback groupCallback, WorkerWrapper... workerWrapper) {
+        return getDefaultEngine().startAsync(timeout, executorService, groupCallback, workerWrapper);
+    }
+
+    /**
+     * 异步执行，超时使用指定的单位。executorService 为 null 时使用默认线程池
+     */
+    public static CompletableFuture<GraphResult> startAsync(long timeout, TimeUnit unit, ExecutorService executorService, IGroupCallback groupCallback, WorkerWrapper... workerWrapper) {
+        return getDefaultEngine().startAsync(timeout, unit, executorService, groupCallback, workerWrapper);
     }
 
     /**
-     * 总共多少个执行单元
+     * 异步执行一个编译好的计划
      */
-    @SuppressWarnings("unchecked")
-    private static void totalWorkers(List<WorkerWrapper> workerWrappers, Set<WorkerWrapper> set) {
-        set.addAll(workerWrappers);
-        for (WorkerWrapper wrapper : workerWrappers) {
-            if (wrapper.getNextWrappers() == null) {
-                continue;
+    public static CompletableFuture<GraphResult> startAsync(long timeout, ExecutorService executorService, GraphPlan plan) {
+        return getDefaultEngine().startAsync(timeout, executorService, plan);
+    }
+
+    /**
+     * 异步执行一个编译好的计划(默认线程池)，超时使用指定的单位
+     */
+    public static CompletableFuture<GraphResult> startAsync(long timeout, TimeUnit unit, GraphPlan plan) {
+        return getDefaultEngine().startAsync(timeout, unit, plan);
+    }
+
+    /**
+     * 异步执行一个创建好的上下文
+     *
+     * @param context 本次执行的上下文
+     * @return 整组执行结束或超时后完成的 future，超时时结果的 isSuccess 为 false
+     */
+    public static CompletableFuture<GraphResult> startAsync(ExecutionContext context) {
+        return getDefaultEngine().startAsync(context);
+    }
+
+    /**
+     * 默认引擎，关闭后再调用会重新创建一个
+     */
+    public static AsyncEngine getDefaultEngine() {
+        AsyncEngine engine = defaultEngine;
+        if (engine == null) {
+            synchronized (Async.class) {
+                engine = defaultEngine;
+                if (engine == null) {
+                    engine = AsyncEngine.builder().name("AsyncX").executor(Executors.newCachedThreadPool()).build();
+                    defaultEngine = engine;
+                }
             }
-            List<WorkerWrapper> wrappers = wrapper.getNextWrappers();
-            totalWorkers(wrappers, set);
         }
-
+        return engine;
     }
 
     /**
-     * 关闭线程池
+     * 关闭默认引擎和默认线程池。调用方自己传入的线程池需要调用 {@link #shutDown(ExecutorService)} 关闭
+     * <p>
+     * 引擎的定时器停止后不能再启动，所以关闭后不复用原来的引擎：之后再使用静态方法时会重新创建默认引擎和线程池，
+     * 统计从零开始，通过 {@link #getDefaultEngine()} 拿到的旧引擎不能再使用
      */
     public static void shutDown() {
-        shutDown(executorService);
+        shutDown(null);
     }
     /**
      * 关闭线程池
@@ -149,8 +185,16 @@ public class Async {
     public static void shutDown(ExecutorService executorService) {
         if (executorService != null) {
             executorService.shutdown();
-        } else {
-            COMMON_POOL.shutdown();
+            return;
+        }
+        AsyncEngine engine;
+        synchronized (Async.class) {
+            engine = defaultEngine;
+            defaultEngine = null;
+        }
+        if (engine != null) {
+            engine.shutdown();
+            engine.getExecutorService().shutdown();
         }
     }
 }
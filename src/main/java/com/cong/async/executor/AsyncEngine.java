@@ -0,0 +1,750 @@
+package com.cong.async.executor;
+
+import com.cong.async.batch.BatchLoader;
+import com.cong.async.callback.DefaultGroupCallback;
+import com.cong.async.callback.IBatchWorker;
+import com.cong.async.callback.IWorker;
+import com.cong.async.callback.IGroupCallback;
+import com.cong.async.executor.time.Clock;
+import com.cong.async.executor.time.HashedWheelTimer;
+import com.cong.async.limit.ConcurrencyLimit;
+import com.cong.async.limit.ConcurrencyLimiter;
+import com.cong.async.metrics.ExecutionListener;
+import com.cong.async.metrics.ExecutionTrace;
+import com.cong.async.policy.CircuitBreak;
+import com.cong.async.policy.CircuitBreaker;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 执行引擎，持有自己的线程池、超时定时器和执行统计
+ * <p>
+ * 不同的引擎之间互不影响，同一个 JVM 里可以创建多个引擎，分别使用隔离的线程池。
+ * {@link Async} 的静态方法都委托给一个默认引擎
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class AsyncEngine {
+
+    private static final AtomicInteger ENGINE_NUMBER = new AtomicInteger();
+
+    /**
+     * 引擎名称，用于线程命名
+     */
+    private final String name;
+
+    /**
+     * 默认线程池，调用时没有指定线程池的都用它
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * {@link PoolTag#IO} 的 wrapper 使用的线程池，不指定时与默认线程池相同
+     */
+    private final ExecutorService ioExecutor;
+
+    /**
+     * {@link PoolTag#CPU} 的 wrapper 使用的线程池，不指定时为核数大小的定长线程池；使用工作窃取的线程池时与默认线程池相同
+     */
+    private final ExecutorService cpuExecutor;
+
+    /**
+     * executorService 是否由引擎自己创建，关闭引擎时一并关闭。调用方传入的线程池由调用方自己关闭
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * cpuExecutor 是否由引擎自己创建，关闭引擎时一并关闭
+     */
+    private final boolean ownCpuExecutor;
+
+    /**
+     * 同步执行时是否由调用线程执行一个起点
+     */
+    private final boolean callerRuns;
+
+    /**
+     * 计算截止时间和驱动时间轮的时钟
+     */
+    private final Clock clock;
+
+    /**
+     * 执行过程的监听器
+     */
+    private final ExecutionListener listener;
+
+    /**
+     * 追踪的采样比例，0 表示不追踪
+     */
+    private final double traceSampleRate;
+
+    /**
+     * 被采样的执行结束后，接收追踪记录
+     */
+    private final Consumer<ExecutionTrace> traceConsumer;
+
+    /**
+     * 触发整组超时和单个 wrapper 超时的时间轮，所有执行共用一个线程，正常结束的会取消自己的超时任务
+     */
+    private final HashedWheelTimer timer;
+
+    /**
+     * 每个批量 worker 实例的攒批器，所有执行共用
+     */
+    private final ConcurrentHashMap<IBatchWorker<?, ?>, BatchLoader<?, ?>> batchLoaders = new ConcurrentHashMap<>();
+
+    /**
+     * worker 类上标注的并发限制，每个类一个限制器，没有标注的为 null
+     */
+    private final ClassValue<ConcurrencyLimiter> limiters = new ClassValue<ConcurrencyLimiter>() {
+        @Override
+        protected ConcurrencyLimiter computeValue(Class<?> type) {
+            ConcurrencyLimit limit = type.getAnnotation(ConcurrencyLimit.class);
+            if (limit == null) {
+                return null;
+            }
+            ConcurrencyLimiter.Builder builder = ConcurrencyLimiter.builder()
+                    .limit(limit.value())
+                    .queueCapacity(limit.queue())
+                    .latencyThreshold(limit.latencyThreshold());
+            if (limit.adaptive()) {
+                builder.adaptive(limit.minLimit(), limit.maxLimit());
+            }
+            return builder.build();
+        }
+    };
+
+    /**
+     * worker 类上标注的熔断器，每个类一个，没有标注的为 null
+     */
+    private final ClassValue<CircuitBreaker> breakers = new ClassValue<CircuitBreaker>() {
+        @Override
+        protected CircuitBreaker computeValue(Class<?> type) {
+            CircuitBreak breaker = type.getAnnotation(CircuitBreak.class);
+            if (breaker == null) {
+                return null;
+            }
+            return CircuitBreaker.builder()
+                    .failureRateThreshold(breaker.failureRate())
+                    .minimumCalls(breaker.minimumCalls())
+                    .window(breaker.window(), 10)
+                    .slowCall(breaker.slowCallThreshold(), breaker.slowCallRate())
+                    .openDuration(breaker.openDuration())
+                    .halfOpenProbes(breaker.halfOpenProbes())
+                    .clock(clock)
+                    .build();
+        }
+    };
+
+    /**
+     * 开始执行的组数
+     */
+    private final LongAdder startedCount = new LongAdder();
+
+    /**
+     * 在超时前全部执行完毕的组数
+     */
+    private final LongAdder successCount = new LongAdder();
+
+    /**
+     * 超时的组数
+     */
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private AsyncEngine(Builder builder) {
+        this.name = builder.name == null ? "AsyncX-" + ENGINE_NUMBER.incrementAndGet() : builder.name;
+        this.ownExecutor = builder.executorService == null;
+        if (builder.executorService != null) {
+            this.executorService = builder.executorService;
+        } else if (builder.workStealingParallelism > 0) {
+            //下游放进当前线程的队列，空闲线程互相窃取，阻塞的节点执行期间补充线程
+            this.executorService = new WorkStealingExecutor(builder.workStealingParallelism, name);
+        } else if (builder.priorityThreads > 0) {
+            //线程池饱和时按关键路径的长度排队
+            this.executorService = new PriorityExecutor(builder.priorityThreads, name);
+        } else if (builder.virtualThreads) {
+            //每个节点一个虚拟线程，阻塞在 rpc、jdbc 上的节点不再占用平台线程
+            this.executorService = VirtualThreads.newExecutor(name);
+        } else {
+            this.executorService = Executors.newCachedThreadPool();
+        }
+        this.callerRuns = builder.callerRuns;
+        this.ioExecutor = builder.ioExecutor == null ? executorService : builder.ioExecutor;
+        this.ownCpuExecutor = builder.cpuExecutor == null && !(executorService instanceof WorkStealingExecutor);
+        if (builder.cpuExecutor == null && !ownCpuExecutor) {
+            //工作窃取的线程池本身就是核数大小，计算的节点也在上面执行，不再单独创建线程
+            this.cpuExecutor = executorService;
+        } else if (ownCpuExecutor) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.cpuExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, name + " CPU-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.cpuExecutor = builder.cpuExecutor;
+        }
+        this.clock = builder.clock == null ? Clock.system() : builder.clock;
+        this.listener = builder.listener == null ? ExecutionListener.NOOP : builder.listener;
+        this.traceSampleRate = builder.traceSampleRate;
+        this.traceConsumer = builder.traceConsumer;
+        this.timer = new HashedWheelTimer(name + " Timer", builder.timerTick, TimeUnit.MILLISECONDS, 1024, clock);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 同步阻塞,直到所有都完成,或失败（用引擎的线程池）
+     */
+    public boolean start(long timeout, WorkerWrapper... workerWrapper) throws ExecutionException, InterruptedException {
+        return start(timeout, executorService, workerWrapper);
+    }
+
+    /**
+     * 同步阻塞,直到所有都完成,或失败，使用指定的线程池
+     */
+    public boolean start(long timeout, ExecutorService executor, WorkerWrapper... workerWrapper) throws ExecutionException, InterruptedException {
+        if (workerWrapper == null || workerWrapper.length == 0) {
+            return false;
+        }
+        return start(timeout, executor, Arrays.asList(workerWrapper));
+    }
+
+    /**
+     * 同步阻塞,直到所有都完成,或失败，使用指定的线程池
+     *
+     * @param timeout        超时
+     * @param executor       执行者
+     * @param workerWrappers 工人包装器
+     * @return 是否在超时前全部执行完毕
+     * @throws ExecutionException   执行异常
+     * @throws InterruptedException 中断异常
+     */
+    public boolean start(long timeout, ExecutorService executor, List<WorkerWrapper> workerWrappers) throws ExecutionException, InterruptedException {
+        return start(timeout, TimeUnit.MILLISECONDS, executor, workerWrappers);
+    }
+
+    /**
+     * 同步阻塞,直到所有都完成,或失败（用引擎的线程池），超时使用指定的单位
+     */
+    public boolean start(long timeout, TimeUnit unit, WorkerWrapper... workerWrapper) throws ExecutionException, InterruptedException {
+        if (workerWrapper == null || workerWrapper.length == 0) {
+            return false;
+        }
+        return start(timeout, unit, executorService, Arrays.asList(workerWrapper));
+    }
+
+    /**
+     * 同步阻塞,直到所有都完成,或失败，使用指定的线程池
+     *
+     * @param timeout        超时
+     * @param unit           超时的单位，截止时间按纳秒计算，不会先截断成毫秒
+     * @param executor       执行者
+     * @param workerWrappers 工人包装器
+     * @return 是否在超时前全部执行完毕
+     * @throws ExecutionException   执行异常
+     * @throws InterruptedException 中断异常
+     */
+    public boolean start(long timeout, TimeUnit unit, ExecutorService executor, List<WorkerWrapper> workerWrappers) throws ExecutionException, InterruptedException {
+        if (workerWrappers == null || workerWrappers.isEmpty()) {
+            return false;
+        }
+        //编译执行计划，执行结果写回到各个wrapper上
+        return start(ExecutionContext.bind(GraphPlan.of(workerWrappers), executor, timeout, unit));
+    }
+
+    /**
+     * 执行一个编译好的计划，同一个计划可以被多次、并发地执行，每次执行的结果从返回的上下文中获取
+     */
+    public ExecutionContext start(long timeout, GraphPlan plan) throws ExecutionException, InterruptedException {
+        return start(timeout, TimeUnit.MILLISECONDS, executorService, plan);
+    }
+
+    /**
+     * 执行一个编译好的计划，使用指定的线程池
+     */
+    public ExecutionContext start(long timeout, ExecutorService executor, GraphPlan plan) throws ExecutionException, InterruptedException {
+        return start(timeout, TimeUnit.MILLISECONDS, executor, plan);
+    }
+
+    /**
+     * 执行一个编译好的计划（用引擎的线程池），超时使用指定的单位
+     */
+    public ExecutionContext start(long timeout, TimeUnit unit, GraphPlan plan) throws ExecutionException, InterruptedException {
+        return start(timeout, unit, executorService, plan);
+    }
+
+    /**
+     * 执行一个编译好的计划，使用指定的线程池，超时使用指定的单位
+     */
+    public ExecutionContext start(long timeout, TimeUnit unit, ExecutorService executor, GraphPlan plan) throws ExecutionException, InterruptedException {
+        ExecutionContext context = new ExecutionContext(plan, executor, timeout, unit);
+        start(context);
+        return context;
+    }
+
+    /**
+     * 执行一个创建好的上下文，可以在执行前通过 {@link ExecutionContext#setParam(int, Object)} 设置本次的入参
+     *
+     * @param context 本次执行的上下文
+     * @return 是否在超时前全部执行完毕
+     * @throws ExecutionException   执行异常
+     * @throws InterruptedException 中断异常
+     */
+    public boolean start(ExecutionContext context) throws ExecutionException, InterruptedException {
+        if (callerRuns) {
+            //调用线程自己在执行节点，不能靠它来发现超时，交给时间轮去停止。调用线程回来后最多再等到截止时间
+            CompletableFuture<GraphResult> future = execute(context, true);
+            try {
+                return future.get(Math.max(context.remainNanos(), 0), TimeUnit.NANOSECONDS).isSuccess();
+            } catch (TimeoutException e) {
+                //统计和回调由时间轮的超时任务完成
+                context.stopNow();
+                return false;
+            }
+        }
+        long begin = beforeStart(context);
+        //只派发起点，后续的wrapper由上游结束时推进，不会有线程阻塞在下游上
+        context.start(this);
+        try {
+            context.getFuture().get(Math.max(context.remainNanos(), 0), TimeUnit.NANOSECONDS);
+            successCount.increment();
+            groupEnd(context, true, begin);
+            return true;
+        } catch (TimeoutException e) {
+            context.stopNow();
+            timeoutCount.increment();
+            groupEnd(context, false, begin);
+            return false;
+        }
+    }
+
+    /**
+     * 异步执行（用引擎的线程池）
+     */
+    public CompletableFuture<GraphResult> startAsync(long timeout, IGroupCallback groupCallback, WorkerWrapper... workerWrapper) {
+        return startAsync(timeout, executorService, groupCallback, workerWrapper);
+    }
+
+    /**
+     * 异步执行,直到所有都完成,或失败后，发起回调
+     * <p>
+     * 不会有线程等待这一组执行，future 由最后一个结束的 wrapper 或者超时定时器完成
+     */
+    public CompletableFuture<GraphResult> startAsync(long timeout, ExecutorService executor, IGroupCallback groupCallback, WorkerWrapper... workerWrapper) {
+        return startAsync(timeout, TimeUnit.MILLISECONDS, executor, groupCallback, workerWrapper);
+    }
+
+    /**
+     * 同 {@link #startAsync(long, ExecutorService, IGroupCallback, WorkerWrapper...)}，超时使用指定的单位。
+     * executor 为 null 时使用引擎的线程池。
+     * 没有传入 wrapper 时和同步的 start 返回 false 一样，回调 failure，返回的结果 isSuccess 为 false、上下文为 null
+     */
+    public CompletableFuture<GraphResult> startAsync(long timeout, TimeUnit unit, ExecutorService executor, IGroupCallback groupCallback, WorkerWrapper... workerWrapper) {
+        if (groupCallback == null) {
+            groupCallback = new DefaultGroupCallback();
+        }
+        if (executor == null) {
+            executor = executorService;
+        }
+        IGroupCallback finalGroupCallback = groupCallback;
+        if (workerWrapper == null || workerWrapper.length == 0) {
+            CompletableFuture<GraphResult> empty = new CompletableFuture<>();
+            runOn(executor, () -> {
+                try {
+                    finalGroupCallback.failure(Collections.emptyList(), new TimeoutException("超时"));
+                } finally {
+                    empty.complete(new GraphResult(false, null));
+                }
+            });
+            return empty;
+        }
+        List<WorkerWrapper> workerWrappers = Arrays.asList(workerWrapper);
+        ExecutionContext context = ExecutionContext.bind(GraphPlan.of(workerWrappers), executor, timeout, unit);
+        //超时时 future 在定时器线程上完成，组回调交给线程池执行
+        ExecutorService callbackExecutor = context.getExecutorService();
+        return startAsync(context).whenCompleteAsync((result, e) -> {
+            if (e != null) {
+                finalGroupCallback.failure(workerWrappers, e instanceof Exception ? (Exception) e : new ExecutionException(e));
+            } else if (result.isSuccess()) {
+                finalGroupCallback.success(workerWrappers);
+            } else {
+                finalGroupCallback.failure(workerWrappers, new TimeoutException("超时"));
+            }
+        }, task -> runOn(callbackExecutor, task));
+    }
+
+    /**
+     * 异步执行一个编译好的计划（用引擎的线程池）
+     */
+    public CompletableFuture<GraphResult> startAsync(long timeout, GraphPlan plan) {
+        return startAsync(timeout, TimeUnit.MILLISECONDS, executorService, plan);
+    }
+
+    /**
+     * 异步执行一个编译好的计划
+     */
+    public CompletableFuture<GraphResult> startAsync(long timeout, ExecutorService executor, GraphPlan plan) {
+        return startAsync(timeout, TimeUnit.MILLISECONDS, executor, plan);
+    }
+
+    /**
+     * 异步执行一个编译好的计划（用引擎的线程池），超时使用指定的单位
+     */
+    public CompletableFuture<GraphResult> startAsync(long timeout, TimeUnit unit, GraphPlan plan) {
+        return startAsync(timeout, unit, executorService, plan);
+    }
+
+    /**
+     * 异步执行一个编译好的计划，超时使用指定的单位
+     */
+    public CompletableFuture<GraphResult> startAsync(long timeout, TimeUnit unit, ExecutorService executor, GraphPlan plan) {
+        return startAsync(new ExecutionContext(plan, executor, timeout, unit));
+    }
+
+    /**
+     * 异步执行一个创建好的上下文
+     *
+     * @param context 本次执行的上下文
+     * @return 整组执行结束或超时后完成的 future，超时时结果的 isSuccess 为 false。
+     * 超时时 future 在定时器线程上完成，耗时的后续动作请用 xxxAsync 方法指定线程池
+     */
+    public CompletableFuture<GraphResult> startAsync(ExecutionContext context) {
+        return execute(context, false);
+    }
+
+    /**
+     * 开始执行，超时由时间轮触发，future 由最后一个结束的 wrapper 或者超时任务完成
+     */
+    private CompletableFuture<GraphResult> execute(ExecutionContext context, boolean callerRuns) {
+        long begin = beforeStart(context);
+        CompletableFuture<GraphResult> future = new CompletableFuture<>();
+        //超时后在定时器线程上停止所有任务(中断执行中的线程)并完成 future，线程池被占满时超时也能按时生效。
+        //各个wrapper的callback和监听器交给线程池去做，不占用定时器线程
+        HashedWheelTimer.Timeout timeoutTask = timer.newTimeout(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            Runnable notifyStopped = context.stop();
+            boolean timedOut = future.complete(new GraphResult(false, context));
+            if (timedOut) {
+                timeoutCount.increment();
+            }
+            runOn(context.getExecutorService(), () -> {
+                notifyStopped.run();
+                if (timedOut) {
+                    groupEnd(context, false, begin);
+                }
+            });
+        }, Math.max(context.remainNanos(), 0), TimeUnit.NANOSECONDS);
+        context.getFuture().thenRun(() -> {
+            timeoutTask.cancel();
+            //截止时间之后才结束的(如调用线程上的节点超出了截止时间)，按超时处理
+            boolean success = context.remainNanos() > 0;
+            if (future.complete(new GraphResult(success, context))) {
+                if (success) {
+                    successCount.increment();
+                } else {
+                    timeoutCount.increment();
+                }
+                groupEnd(context, success, begin);
+            }
+        });
+        context.start(this, callerRuns);
+        return future;
+    }
+
+    /**
+     * 在线程池上执行，线程池拒绝时在当前线程执行
+     */
+    private static void runOn(ExecutorService executor, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * 开始执行前的统计和追踪采样，返回开始的时间
+     */
+    private long beforeStart(ExecutionContext context) {
+        startedCount.increment();
+        if (traceSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < traceSampleRate) {
+            context.enableTracing();
+        }
+        return clock.nanoTime();
+    }
+
+    /**
+     * 整组结束或超时，通知监听器，被采样的执行交出追踪记录
+     */
+    private void groupEnd(ExecutionContext context, boolean success, long begin) {
+        listener.onGroupEnd(context, success, clock.nanoTime() - begin);
+        if (traceConsumer != null && context.isTraced()) {
+            traceConsumer.accept(context.getTrace());
+        }
+    }
+
+    /**
+     * 关闭引擎自己创建的线程池和定时器。通过 Builder 传入的线程池(包括 IO 线程池)不会被关闭，由调用方自己关闭
+     */
+    public void shutdown() {
+        if (ownExecutor) {
+            executorService.shutdown();
+        }
+        if (ownCpuExecutor) {
+            cpuExecutor.shutdown();
+        }
+        timer.stop();
+    }
+
+    /**
+     * 某一类 wrapper 使用的线程池，INLINE 没有自己的线程池，返回 null
+     */
+    public ExecutorService getExecutor(PoolTag poolTag) {
+        switch (poolTag) {
+            case IO:
+                return ioExecutor;
+            case CPU:
+                return cpuExecutor;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 批量 worker 的攒批器，第一次使用时创建，batchAction 在 IO 线程池上执行
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> BatchLoader<K, V> getBatchLoader(IBatchWorker<K, V> worker) {
+        return (BatchLoader<K, V>) batchLoaders.computeIfAbsent(worker, w -> new BatchLoader<>(worker, timer, ioExecutor));
+    }
+
+    /**
+     * worker 类上标注的 {@link ConcurrencyLimit} 对应的限制器，没有标注时返回 null
+     */
+    public ConcurrencyLimiter getLimiter(IWorker<?, ?> worker) {
+        return limiters.get(worker.getClass());
+    }
+
+    /**
+     * worker 类上标注的 {@link CircuitBreak} 对应的熔断器，没有标注时返回 null
+     */
+    public CircuitBreaker getCircuitBreaker(IWorker<?, ?> worker) {
+        return breakers.get(worker.getClass());
+    }
+
+    public boolean isCallerRuns() {
+        return callerRuns;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public ExecutionListener getListener() {
+        return listener;
+    }
+
+    /**
+     * 引擎的时间轮，到期任务在时间轮线程上执行，需要转交给线程池再做耗时的工作
+     */
+    public HashedWheelTimer getTimer() {
+        return timer;
+    }
+
+    public long getStartedCount() {
+        return startedCount.sum();
+    }
+
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public static class Builder {
+        private String name;
+        private ExecutorService executorService;
+        private ExecutorService ioExecutor;
+        private ExecutorService cpuExecutor;
+        private boolean virtualThreads;
+        private int priorityThreads;
+        private int workStealingParallelism;
+        private long timerTick = 5;
+        private boolean callerRuns;
+        private Clock clock;
+        private ExecutionListener listener;
+        private double traceSampleRate;
+        private Consumer<ExecutionTrace> traceConsumer;
+
+        /**
+         * 引擎名称，用于线程命名
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * 引擎的默认线程池，不指定时使用不定长线程池。传入的线程池不会随引擎关闭
+         */
+        public Builder executor(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        /**
+         * 默认线程池和 IO 线程池使用虚拟线程，每个节点运行在自己的虚拟线程上，CPU 线程池仍然是平台线程。
+         * 需要 Java 21 及以上
+         *
+         * @throws UnsupportedOperationException 当前运行环境不支持虚拟线程
+         */
+        public Builder virtualThreads() {
+            if (!VirtualThreads.isSupported()) {
+                throw new UnsupportedOperationException("虚拟线程需要 Java 21 及以上，并使用 JDK 21 构建的 multi-release jar");
+            }
+            this.virtualThreads = true;
+            return this;
+        }
+
+        /**
+         * 默认线程池使用定长的 {@link PriorityExecutor}：线程都忙时，排队的节点按到终点的最长路径从长到短执行，
+         * 而不是先来先执行。适合线程数有限、经常饱和的场景
+         *
+         * @param threads 线程数
+         */
+        public Builder priorityScheduling(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be at least 1");
+            }
+            this.priorityThreads = threads;
+            return this;
+        }
+
+        /**
+         * 默认线程池使用核数大小的 {@link WorkStealingExecutor}
+         */
+        public Builder workStealing() {
+            return workStealing(Runtime.getRuntime().availableProcessors());
+        }
+
+        /**
+         * 默认线程池使用 {@link WorkStealingExecutor}：下游节点放进完成上游的线程自己的队列，空闲线程互相窃取；
+         * 会阻塞的节点执行期间临时补充线程。没有指定 CPU 线程池时，计算的节点也在这个线程池上执行
+         *
+         * @param parallelism 并行度
+         */
+        public Builder workStealing(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1");
+            }
+            this.workStealingParallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * {@link PoolTag#IO} 的 wrapper 使用的线程池，不指定时使用默认线程池
+         */
+        public Builder ioExecutor(ExecutorService ioExecutor) {
+            this.ioExecutor = ioExecutor;
+            return this;
+        }
+
+        /**
+         * {@link PoolTag#CPU} 的 wrapper 使用的线程池，不指定时由引擎创建核数大小的定长线程池
+         */
+        public Builder cpuExecutor(ExecutorService cpuExecutor) {
+            this.cpuExecutor = cpuExecutor;
+            return this;
+        }
+
+        /**
+         * 时间轮每一格的毫秒数，即超时的精度，默认 5 毫秒
+         */
+        public Builder timerTick(long timerTick) {
+            this.timerTick = timerTick;
+            return this;
+        }
+
+        /**
+         * 同步执行时由调用线程执行一个起点，以及它后面同一线程池的下游，其余起点照常派发到线程池。
+         * 只有很短的纯计算的图可以完全在调用线程上跑完，不发生线程切换。
+         * <p>
+         * 会阻塞的节点和 {@link PoolTag#CPU}、{@link PoolTag#IO} 的节点不会在调用线程上执行；调用线程过了截止时间后不再继续执行下游，
+         * 但正在执行的 action 无法被抢占，同步的 start 可能晚于超时返回，此时返回 false
+         */
+        public Builder callerRuns() {
+            this.callerRuns = true;
+            return this;
+        }
+
+        /**
+         * 计算截止时间的时钟，默认 {@link Clock#system()}；测试时可以用 {@link Clock#manual()} 手动推进时间
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * 执行过程的监听器，可以使用内置的 {@link com.cong.async.metrics.HistogramListener} 按 wrapper id 统计耗时
+         */
+        public Builder listener(ExecutionListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * 按比例采样追踪执行过程，被采样的执行结束后把追踪记录交给 consumer，可以用来找出关键路径或导出 Chrome trace。
+         * 没有被采样的执行只多一次判断
+         *
+         * @param sampleRate 采样比例，0 到 1
+         * @param consumer   接收追踪记录，在结束执行的线程上调用
+         */
+        public Builder tracing(double sampleRate, Consumer<ExecutionTrace> consumer) {
+            if (sampleRate < 0 || sampleRate > 1) {
+                throw new IllegalArgumentException("sampleRate must be in [0, 1]");
+            }
+            this.traceSampleRate = sampleRate;
+            this.traceConsumer = consumer;
+            return this;
+        }
+
+        /**
+         * @throws IllegalStateException 同时指定了 executor、workStealing、priorityScheduling、virtualThreads 中的多个
+         */
+        public AsyncEngine build() {
+            int choices = (executorService != null ? 1 : 0) + (workStealingParallelism > 0 ? 1 : 0)
+                    + (priorityThreads > 0 ? 1 : 0) + (virtualThreads ? 1 : 0);
+            if (choices > 1) {
+                throw new IllegalStateException("executor, workStealing, priorityScheduling and virtualThreads are mutually exclusive");
+            }
+            return new AsyncEngine(this);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.cong.async.executor;
+
+/**
+ * wrapper 运行在哪一类线程池上
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public enum PoolTag {
+    /**
+     * 会阻塞的任务，如rpc、数据库调用，运行在引擎的 IO 线程池上
+     */
+    IO,
+    /**
+     * 纯计算的任务，运行在引擎的 CPU 线程池上，线程数与核数相同
+     */
+    CPU,
+    /**
+     * 非常轻量的任务，直接在让它就绪的那个线程上执行，不做任何线程切换
+     */
+    INLINE
+}
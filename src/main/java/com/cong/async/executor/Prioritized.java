@@ -0,0 +1,22 @@
+package com.cong.async.executor;
+
+/**
+ * 带优先级的任务，在 {@link PriorityExecutor} 中先按组的先后，同一组内优先级高的先执行
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public interface Prioritized {
+
+    /**
+     * 优先级，越大越先执行
+     */
+    long priority();
+
+    /**
+     * 所属的组，越小越先执行。默认都在同一组
+     */
+    default long group() {
+        return 0;
+    }
+}
@@ -0,0 +1,35 @@
+package com.cong.async.executor;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程支持
+ * <p>
+ * 这是 Java 8 下的实现，虚拟线程不可用。在 JDK 21 及以上构建时，jar 中会带上
+ * META-INF/versions/21 下的同名实现(见 src/main/java21)，运行在 21 及以上的 JVM 时自动使用那一份
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+
+    }
+
+    /**
+     * 当前运行环境是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * 每个任务一个虚拟线程的线程池
+     *
+     * @param name 线程名前缀
+     */
+    public static ExecutorService newExecutor(String name) {
+        throw new UnsupportedOperationException("虚拟线程需要 Java 21 及以上，并使用 JDK 21 构建的 multi-release jar");
+    }
+}
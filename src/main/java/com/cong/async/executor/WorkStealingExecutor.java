@@ -0,0 +1,102 @@
+package com.cong.async.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工作窃取的线程池
+ * <p>
+ * 每个线程有自己的双端队列，线程上派发的下游节点放进自己的队列，由自己后进先出地执行，刚产生的结果还在缓存里；
+ * 空闲的线程从别的线程的队列另一端窃取，不会争抢同一个队列。线程数默认与核数相同，适合以计算为主的图。
+ * <p>
+ * 标记为会阻塞的 wrapper（{@link com.cong.async.wrapper.WorkerWrapper.Builder#blocking()} 或者 {@link PoolTag#IO}）
+ * 通过 {@link ForkJoinPool.ManagedBlocker} 执行，只在真正阻塞期间补充线程，阻塞结束后多出来的线程空闲一段时间后退出，
+ * 所以同一个线程池也能安全地执行 IO 的图
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class WorkStealingExecutor extends ForkJoinPool {
+
+    /**
+     * @param parallelism 并行度，即不阻塞时的线程数
+     * @param name        线程名前缀
+     */
+    public WorkStealingExecutor(int parallelism, String name) {
+        super(parallelism, newThreadFactory(name), null, false);
+    }
+
+    private static ForkJoinWorkerThreadFactory newThreadFactory(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + "-" + threadNumber.incrementAndGet());
+            return thread;
+        };
+    }
+
+    /**
+     * 在自己的线程上派发的任务放进当前线程的队列，其余的从外部提交
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == this) {
+            ForkJoinTask.adapt(task).fork();
+        } else {
+            super.execute(task);
+        }
+    }
+
+    /**
+     * 执行会阻塞的调用。在 {@link ForkJoinPool} 的线程上时，阻塞期间线程池会补充线程；在其他线程上直接执行
+     */
+    public static <V> V block(Callable<V> callable) throws Exception {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+            return callable.call();
+        }
+        Blocker<V> blocker = new Blocker<>(callable);
+        ForkJoinPool.managedBlock(blocker);
+        if (blocker.ex != null) {
+            throw blocker.ex;
+        }
+        return blocker.value;
+    }
+
+    /**
+     * 把一次阻塞调用包装成 {@link ForkJoinPool.ManagedBlocker}，调用的异常留给 {@link #block(Callable)} 抛出
+     */
+    private static final class Blocker<V> implements ManagedBlocker {
+        private final Callable<V> callable;
+        private boolean done;
+        private V value;
+        private Exception ex;
+
+        private Blocker(Callable<V> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public boolean block() {
+            try {
+                value = callable.call();
+            } catch (Exception e) {
+                ex = e;
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.cong.async.executor.time;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 由后台线程按固定周期刷新的单调时钟
+ * <p>
+ * 只在调用频率远高于刷新频率、且能接受一个周期误差的场景使用，其余情况用 {@link Clock#system()} 即可
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class CachedClock implements Clock {
+
+    private volatile long now = System.nanoTime();
+
+    private final ScheduledExecutorService scheduler;
+
+    public CachedClock(long period, TimeUnit unit) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Cached Clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> now = System.nanoTime(), period, period, unit);
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    /**
+     * 停止后台刷新线程
+     */
+    public void stop() {
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,42 @@
+package com.cong.async.executor.time;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计算截止时间用的单调时钟
+ * <p>
+ * 返回值只用来计算两次调用之间的差值，和 {@link System#nanoTime()} 一样与墙上时间无关，不受 NTP 调整的影响。
+ * 引擎通过 {@link com.cong.async.executor.AsyncEngine.Builder#clock(Clock)} 指定时钟，默认使用 {@link #system()}
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@FunctionalInterface
+public interface Clock {
+
+    /**
+     * 当前时间的纳秒数，只有差值有意义
+     */
+    long nanoTime();
+
+    /**
+     * 直接读取 {@link System#nanoTime()}，精确，没有后台线程
+     */
+    static Clock system() {
+        return System::nanoTime;
+    }
+
+    /**
+     * 由后台线程按固定周期刷新的时钟，读取只是一次 volatile 读，精度为一个周期
+     */
+    static Clock cached(long period, TimeUnit unit) {
+        return new CachedClock(period, unit);
+    }
+
+    /**
+     * 只在调用 {@link ManualClock#advance(long, TimeUnit)} 时前进的时钟，用于测试
+     */
+    static ManualClock manual() {
+        return new ManualClock();
+    }
+}
@@ -0,0 +1,335 @@
+package com.cong.async.executor.time;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮，用一个线程管理任意多个超时任务
+ * <p>
+ * 时间轮由 2 的幂个槽组成，指针每 tick 前进一格，到期时间落在同一格的任务挂在同一个链表上，
+ * 超过一圈的任务记录还要转几圈。添加和取消都只是入队，由时间轮线程统一处理，所以添加、取消都是 O(1) 且不加锁，
+ * 取消的任务会立刻从槽中摘除，不会堆积。
+ * <p>
+ * 到期任务在时间轮线程上执行，必须非常轻，耗时的工作应该在任务中转交给线程池。
+ * 时间轮线程在第一次添加任务时才启动
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class HashedWheelTimer {
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_STOPPED = 2;
+
+    /**
+     * 每次转移到槽中的新任务的上限，避免添加过快时时间轮线程一直在搬运而不推进
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    private final String name;
+
+    private final Clock clock;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    /**
+     * 新添加、还没放进槽的任务
+     */
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 已经取消、还没从槽中摘除的任务
+     */
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+    private volatile Thread workerThread;
+
+    /**
+     * 时间轮线程启动的时间，所有任务的到期时间都相对它计算
+     */
+    private volatile long startTime;
+
+    private volatile boolean started;
+
+    /**
+     * 指针已经走过的格数
+     */
+    private long tick;
+
+    /**
+     * @param name          线程名
+     * @param tickDuration  每一格的时长，决定超时的精度
+     * @param unit          tickDuration 的单位
+     * @param ticksPerWheel 一圈的格数，会向上取整到 2 的幂
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(name, tickDuration, unit, ticksPerWheel, Clock.system());
+    }
+
+    /**
+     * @param clock 时钟，时间轮按它判断任务是否到期。使用 {@link ManualClock} 时，推进时钟后最多一格的真实时间内到期的任务会被执行
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, Clock clock) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be in (0, 2^30]");
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.name = name;
+        this.clock = clock;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 添加一个在 delay 之后执行的任务
+     *
+     * @return 用于取消任务的句柄
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("task is null");
+        }
+        start();
+        long deadline = clock.nanoTime() + unit.toNanos(Math.max(delay, 0)) - startTime;
+        Timeout timeout = new Timeout(this, task, deadline);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void start() {
+        int current = state.get();
+        if (current == STATE_INIT && state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+            startTime = clock.nanoTime();
+            started = true;
+            Thread thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+            workerThread = thread;
+            thread.start();
+        } else if (state.get() == STATE_STOPPED) {
+            throw new IllegalStateException("timer has been stopped");
+        }
+        //别的线程刚刚启动时间轮，等它设置好起始时间
+        while (!started) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * 停止时间轮，还没有到期的任务不会再执行
+     */
+    public void stop() {
+        if (state.getAndSet(STATE_STOPPED) == STATE_STARTED) {
+            Thread thread = workerThread;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 还没有到期也没有取消的任务数量，只用于监控
+     */
+    public int pendingCount() {
+        int count = pendingTimeouts.size();
+        for (Bucket bucket : wheel) {
+            count += bucket.size;
+        }
+        return count;
+    }
+
+    private void run() {
+        while (state.get() == STATE_STARTED) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                continue;
+            }
+            removeCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * 睡到下一格开始，返回当前相对 startTime 的时间，被停止时返回 -1
+     */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long current = clock.nanoTime() - startTime;
+            long sleepNanos = deadline - current;
+            if (sleepNanos <= 0) {
+                return current;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+            if (state.get() != STATE_STARTED) {
+                return -1;
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferPending() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() != Timeout.ST_INIT) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            //已经过期的任务放到当前格，马上执行
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * 超时任务的句柄
+     */
+    public static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        /**
+         * 以下字段只由时间轮线程读写
+         */
+        private long remainingRounds;
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务，已经执行过的任务取消不了
+         *
+         * @return 是否由本次调用取消了任务
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * 时间轮的一格，双向链表，只由时间轮线程访问
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+        private volatile int size;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+            size++;
+        }
+
+        private void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            size--;
+        }
+
+        /**
+         * 执行这一格中已经到期的任务，其余的转数减一
+         */
+        private void expire(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    try {
+                        timeout.expire();
+                    } catch (Throwable ignored) {
+                        //一个任务出错不影响其他任务
+                    }
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cong.async.executor.time;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 手动推进的时钟，用于测试超时逻辑，不需要真的等待
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ManualClock implements Clock {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Override
+    public long nanoTime() {
+        return now.get();
+    }
+
+    /**
+     * 时钟前进一段时间
+     */
+    public void advance(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration must not be negative");
+        }
+        now.addAndGet(unit.toNanos(duration));
+    }
+}
@@ -7,10 +7,14 @@ import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 系统时钟 (用于解决高并发下 System.currentTimeMillis 卡顿)
+ * <p>
+ * 超时计算已经改用单调的 {@link Clock}，框架内部不再使用本类。刷新线程只有在第一次调用 {@link #now()} 时才会启动
  *
  * @author cong
  * @date 2024/04/28
+ * @deprecated 使用 {@link Clock#system()} 或 {@link Clock#cached(long, java.util.concurrent.TimeUnit)}
  */
+@Deprecated
 public class SystemClock {
 
     private final int period;
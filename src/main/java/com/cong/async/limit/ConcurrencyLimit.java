@@ -0,0 +1,44 @@
+package com.cong.async.limit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在 worker 类上，同一个引擎里这个类的所有节点共用一个 {@link ConcurrencyLimiter}。
+ * wrapper 上单独设置的限制优先
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConcurrencyLimit {
+
+    /**
+     * 并发上限，自适应时为初始上限
+     */
+    int value();
+
+    /**
+     * 排队的上限，0 表示超过并发上限时直接拒绝
+     */
+    int queue() default 0;
+
+    /**
+     * 是否按 AIMD 自适应调整上限
+     */
+    boolean adaptive() default false;
+
+    int minLimit() default 1;
+
+    int maxLimit() default 1000;
+
+    /**
+     * 耗时超过多少毫秒的调用按失败调整上限，0 表示只看异常
+     */
+    long latencyThreshold() default 0;
+}
@@ -0,0 +1,275 @@
+package com.cong.async.limit;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一类 worker 的并发限制(舱壁)，避免一个慢的下游占满线程池
+ * <p>
+ * 同时执行的 action 数达到上限后，新的节点进入有界队列等待，等待期间不占用线程，有调用结束时由它把许可交给队首的节点；
+ * 队列也满了时节点直接以 {@link com.cong.async.worker.ResultState#REJECTED} 和默认值结束。
+ * <p>
+ * 上限可以是固定的，也可以按 AIMD 自适应：调用异常或者耗时超过阈值时上限乘以回退比例，
+ * 否则在并发用到上限的一半以上时加一。通过 {@link com.cong.async.wrapper.WorkerWrapper.Builder#limiter(ConcurrencyLimiter)}
+ * 设置到节点上，或者在 worker 类上标注 {@link ConcurrencyLimit}
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * 申请许可的结果
+     */
+    public enum Admission {
+        ACQUIRED,//拿到许可，可以执行
+        QUEUED,//进入队列，拿到许可时会执行登记的任务
+        REJECTED //被拒绝
+    }
+
+    private final boolean adaptive;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final long latencyThresholdNanos;
+
+    private final int queueCapacity;
+
+    private final AtomicInteger limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 排队的节点数，先于入队增加，用来限制队列长度
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Queue<Runnable> waiters = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder queuedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private ConcurrencyLimiter(Builder builder) {
+        this.adaptive = builder.adaptive;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(builder.latencyThreshold);
+        this.queueCapacity = builder.queueCapacity;
+        this.limit = new AtomicInteger(builder.limit);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 固定上限、不排队的限制
+     */
+    public static ConcurrencyLimiter fixed(int limit) {
+        return builder().limit(limit).build();
+    }
+
+    /**
+     * 申请一个许可
+     *
+     * @param waiter 进入队列时登记的任务，拿到许可后在归还许可的线程上执行，不能阻塞
+     */
+    public Admission tryAcquire(Runnable waiter) {
+        //有节点在排队时不插队
+        if (queued.get() == 0 && acquirePermit()) {
+            return Admission.ACQUIRED;
+        }
+        if (reserveQueue()) {
+            waiters.add(waiter);
+            queuedCount.increment();
+            //入队前可能刚好有许可被归还
+            drain();
+            return Admission.QUEUED;
+        }
+        rejectedCount.increment();
+        return Admission.REJECTED;
+    }
+
+    /**
+     * 调用结束，归还许可并用这次调用调整上限
+     *
+     * @param latencyNanos 调用耗时
+     * @param dropped      调用是否失败
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        if (adaptive) {
+            adjust(latencyNanos, dropped);
+        }
+        release();
+    }
+
+    /**
+     * 归还没有用来调用的许可(排队的节点在拿到许可前已经结束)
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    private void adjust(long latencyNanos, boolean dropped) {
+        int current = limit.get();
+        int updated;
+        if (dropped || (latencyThresholdNanos > 0 && latencyNanos > latencyThresholdNanos)) {
+            updated = Math.max(minLimit, (int) (current * backoffRatio));
+        } else if (inFlight.get() * 2 >= current) {
+            updated = Math.min(maxLimit, current + 1);
+        } else {
+            return;
+        }
+        //并发的调整只生效一个，不影响收敛
+        limit.compareAndSet(current, updated);
+    }
+
+    private boolean acquirePermit() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private boolean reserveQueue() {
+        int current;
+        do {
+            current = queued.get();
+            if (current >= queueCapacity) {
+                return false;
+            }
+        } while (!queued.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * 有空闲的许可时交给排队的节点
+     */
+    private void drain() {
+        while (queued.get() > 0 && acquirePermit()) {
+            Runnable waiter = waiters.poll();
+            if (waiter == null) {
+                //名额已经占了但还没入队，由入队的线程再来处理
+                inFlight.decrementAndGet();
+                return;
+            }
+            queued.decrementAndGet();
+            waiter.run();
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter{" +
+                "limit=" + getLimit() +
+                ", inFlight=" + getInFlight() +
+                ", queued=" + getQueued() +
+                ", rejected=" + getRejectedCount() +
+                '}';
+    }
+
+    public static class Builder {
+        private int limit = 16;
+        private boolean adaptive;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private double backoffRatio = 0.9;
+        private long latencyThreshold;
+        private int queueCapacity;
+
+        /**
+         * 并发上限，自适应时为初始上限，默认 16
+         */
+        public Builder limit(int limit) {
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be at least 1");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * 按 AIMD 在 [minLimit, maxLimit] 之间调整上限
+         */
+        public Builder adaptive(int minLimit, int maxLimit) {
+            if (minLimit < 1 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("limits must satisfy 1 <= min <= max");
+            }
+            this.adaptive = true;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * 失败时上限乘以的比例，默认 0.9
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoffRatio must be in (0, 1)");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * 耗时超过多少毫秒的调用按失败调整上限，默认 0 表示只看异常
+         */
+        public Builder latencyThreshold(long latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+            return this;
+        }
+
+        /**
+         * 排队的上限，默认 0 表示超过并发上限时直接拒绝
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("queueCapacity must not be negative");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public ConcurrencyLimiter build() {
+            if (adaptive && (limit < minLimit || limit > maxLimit)) {
+                limit = Math.max(minLimit, Math.min(maxLimit, limit));
+            }
+            return new ConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.cong.async.metrics;
+
+import com.cong.async.worker.ResultState;
+import com.cong.async.wrapper.ExecutionContext;
+
+/**
+ * 执行过程的监听器，由调度器在节点和整组结束时调用，用于统计耗时
+ * <p>
+ * 时间戳都是引擎 {@link com.cong.async.executor.time.Clock} 上的纳秒数，只有差值有意义。
+ * 调用发生在执行节点的线程上，实现必须线程安全且足够轻，不要在这里做阻塞操作
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public interface ExecutionListener {
+
+    /**
+     * 什么也不做的监听器，引擎默认使用它，此时调度器不会记录任何时间戳
+     */
+    ExecutionListener NOOP = new ExecutionListener() {
+    };
+
+    /**
+     * 节点结束(成功、失败、超时、被跳过)
+     *
+     * @param context    本次执行的上下文
+     * @param index      节点在计划中的编号，可以通过 {@code context.getPlan().getNode(index)} 获取 wrapper
+     * @param readyNanos 节点就绪(依赖都已满足，或者作为起点被派发)的时间
+     * @param startNanos 开始执行 action 的时间，没有执行过 action 时为 0。startNanos - readyNanos 就是在线程池队列中等待的时间
+     * @param endNanos   结束的时间
+     * @param state      结果状态
+     */
+    default void onNodeEnd(ExecutionContext context, int index, long readyNanos, long startNanos, long endNanos, ResultState state) {
+    }
+
+    /**
+     * 整组结束或超时
+     *
+     * @param context      本次执行的上下文
+     * @param success      是否在超时前全部执行完毕
+     * @param elapsedNanos 从开始执行到结束的纳秒数
+     */
+    default void onGroupEnd(ExecutionContext context, boolean success, long elapsedNanos) {
+    }
+}
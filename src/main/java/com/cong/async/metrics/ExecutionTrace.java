@@ -0,0 +1,215 @@
+package com.cong.async.metrics;
+
+import com.cong.async.worker.ResultState;
+import com.cong.async.wrapper.GraphPlan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次执行的追踪记录：每个节点的就绪、开始、结束时间和执行线程，以及是哪个上游让它就绪的
+ * <p>
+ * 关键路径从最后结束的节点开始，沿着"让自己就绪的上游"一直回溯到起点，路径上每一段的排队和执行时间之和
+ * 就是整组的耗时，优化其他节点不会让整组变快。
+ * {@link #toChromeTrace()} 导出 Chrome trace_event 格式的 JSON，可以直接用 Perfetto 或 chrome://tracing 打开
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ExecutionTrace {
+
+    private final GraphPlan plan;
+    private final long[] readyNanos;
+    private final long[] startNanos;
+    private final long[] endNanos;
+    private final String[] threads;
+    private final int[] readiedBy;
+    private final ResultState[] states;
+
+    /**
+     * 由 {@link com.cong.async.wrapper.ExecutionContext#getTrace()} 创建，数组按节点编号排列，
+     * 没有就绪的节点 readyNanos 为 0，没有开始执行的节点 startNanos 为 0，没有结束的节点 endNanos 为 0，
+     * 起点和没有就绪的节点 readiedBy 为 -1
+     */
+    public ExecutionTrace(GraphPlan plan, long[] readyNanos, long[] startNanos, long[] endNanos,
+                          String[] threads, int[] readiedBy, ResultState[] states) {
+        this.plan = plan;
+        this.readyNanos = readyNanos;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.threads = threads;
+        this.readiedBy = readiedBy;
+        this.states = states;
+    }
+
+    /**
+     * 关键路径上的节点编号，从起点到最后结束的节点。
+     * 超时或被停止时没有就绪过的节点也会被结束，但它们不在任何路径上，不参与选择
+     */
+    public List<Integer> criticalPath() {
+        int last = -1;
+        for (int i = 0; i < endNanos.length; i++) {
+            if (endNanos[i] != 0 && readyNanos[i] != 0 && (last < 0 || endNanos[i] - endNanos[last] > 0)) {
+                last = i;
+            }
+        }
+        List<Integer> path = new ArrayList<>();
+        for (int index = last; index >= 0; index = readiedBy[index]) {
+            path.add(index);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * 关键路径上的 wrapper id，从起点到最后结束的节点
+     */
+    public List<String> criticalPathIds() {
+        List<String> ids = new ArrayList<>();
+        for (int index : criticalPath()) {
+            ids.add(plan.getNode(index).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 从第一个节点就绪到最后一个节点结束的纳秒数
+     */
+    public long getDurationNanos() {
+        long begin = begin();
+        long end = begin;
+        for (long value : endNanos) {
+            if (value != 0 && value - end > 0) {
+                end = value;
+            }
+        }
+        return end - begin;
+    }
+
+    private long begin() {
+        long begin = 0;
+        boolean found = false;
+        for (long value : readyNanos) {
+            if (value != 0 && (!found || value - begin < 0)) {
+                begin = value;
+                found = true;
+            }
+        }
+        return begin;
+    }
+
+    /**
+     * 导出为 Chrome trace_event 格式的 JSON。每个节点是一个完整事件(ph=X)，按执行线程分行，
+     * 排队时间、结果状态和是否在关键路径上放在 args 中。没有就绪就被结束的节点(如超时)是结束时刻的瞬时事件(ph=i)
+     */
+    public String toChromeTrace() {
+        long begin = begin();
+        boolean[] critical = new boolean[plan.size()];
+        for (int index : criticalPath()) {
+            critical[index] = true;
+        }
+        Map<String, Integer> threadIds = new HashMap<>();
+        StringBuilder json = new StringBuilder("{\"traceEvents\":[");
+        boolean first = true;
+        for (int i = 0; i < plan.size(); i++) {
+            if (endNanos[i] == 0) {
+                continue;
+            }
+            String thread = threads[i] == null ? "unknown" : threads[i];
+            Integer tid = threadIds.get(thread);
+            if (tid == null) {
+                tid = threadIds.size() + 1;
+                threadIds.put(thread, tid);
+                json.append(first ? "" : ",")
+                        .append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(tid)
+                        .append(",\"args\":{\"name\":");
+                appendString(json, thread);
+                json.append("}}");
+                first = false;
+            }
+            json.append(first ? "" : ",").append("{\"name\":");
+            first = false;
+            if (readyNanos[i] == 0 && startNanos[i] == 0) {
+                appendString(json, plan.getNode(i).getId());
+                json.append(",\"cat\":\"node\",\"ph\":\"i\",\"s\":\"t\",\"pid\":1,\"tid\":").append(tid)
+                        .append(",\"ts\":").append(micros(endNanos[i] - begin))
+                        .append(",\"args\":{\"state\":\"").append(states[i]).append("\"}}");
+                continue;
+            }
+            //没有执行过 action 的节点，事件从就绪时开始
+            long start = startNanos[i] == 0 ? readyNanos[i] : startNanos[i];
+            appendString(json, plan.getNode(i).getId());
+            json.append(",\"cat\":\"").append(critical[i] ? "critical" : "node").append('"')
+                    .append(",\"ph\":\"X\",\"pid\":1,\"tid\":").append(tid)
+                    .append(",\"ts\":").append(micros(start - begin))
+                    .append(",\"dur\":").append(micros(endNanos[i] - start))
+                    .append(",\"args\":{\"state\":\"").append(states[i]).append('"')
+                    .append(",\"queueWaitUs\":").append(startNanos[i] == 0 ? 0 : micros(startNanos[i] - readyNanos[i]))
+                    .append(",\"critical\":").append(critical[i])
+                    .append("}}");
+        }
+        return json.append("],\"displayTimeUnit\":\"ms\"}").toString();
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1000.0);
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    public GraphPlan getPlan() {
+        return plan;
+    }
+
+    public long getReadyNanos(int index) {
+        return readyNanos[index];
+    }
+
+    public long getStartNanos(int index) {
+        return startNanos[index];
+    }
+
+    public long getEndNanos(int index) {
+        return endNanos[index];
+    }
+
+    public String getThread(int index) {
+        return threads[index];
+    }
+
+    public ResultState getState(int index) {
+        return states[index];
+    }
+}
@@ -0,0 +1,78 @@
+package com.cong.async.metrics;
+
+import com.cong.async.worker.ResultState;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * 内置的监听器，按 wrapper id 分别统计排队时间、执行时间和结果，以及整组的耗时
+ * <p>
+ * 每个 id 第一次出现时创建一次统计对象，之后的记录都不加锁、不分配内存。
+ * 可以定期通过 {@link #getNodeMetrics()} 导出每个 worker 的 p50、p99
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class HistogramListener implements ExecutionListener {
+
+    private final ConcurrentHashMap<String, NodeMetrics> nodeMetrics = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram group = new LatencyHistogram();
+
+    @Override
+    public void onNodeEnd(ExecutionContext context, int index, long readyNanos, long startNanos, long endNanos, ResultState state) {
+        String id = context.getPlan().getNode(index).getId();
+        //先用 get，已存在时不会去锁 ConcurrentHashMap 的桶
+        NodeMetrics metrics = nodeMetrics.get(id);
+        if (metrics == null) {
+            metrics = nodeMetrics.computeIfAbsent(id, key -> new NodeMetrics());
+        }
+        metrics.record(readyNanos, startNanos, endNanos, state);
+    }
+
+    @Override
+    public void onGroupEnd(ExecutionContext context, boolean success, long elapsedNanos) {
+        group.record(elapsedNanos);
+    }
+
+    /**
+     * 某个 wrapper id 的统计，没有记录过时返回 null
+     */
+    public NodeMetrics getNodeMetrics(String id) {
+        return nodeMetrics.get(id);
+    }
+
+    /**
+     * 所有 wrapper id 的统计
+     */
+    public Map<String, NodeMetrics> getNodeMetrics() {
+        return Collections.unmodifiableMap(nodeMetrics);
+    }
+
+    /**
+     * 按实测的平均执行耗时(微秒，至少为 1)计算节点的代价，用于 {@link com.cong.async.wrapper.GraphPlan#updatePriorities(ToLongFunction)}。
+     * 还没有记录的节点代价为 1
+     */
+    public ToLongFunction<WorkerWrapper<?, ?>> executionCost() {
+        return wrapper -> {
+            NodeMetrics metrics = nodeMetrics.get(wrapper.getId());
+            if (metrics == null || metrics.getExecution().getCount() == 0) {
+                return 1;
+            }
+            return Math.max(TimeUnit.NANOSECONDS.toMicros((long) metrics.getExecution().getMean()), 1);
+        };
+    }
+
+    /**
+     * 整组的耗时
+     */
+    public LatencyHistogram getGroup() {
+        return group;
+    }
+}
@@ -0,0 +1,72 @@
+package com.cong.async.metrics;
+
+import com.cong.async.worker.ResultState;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 同一个 wrapper id 的统计：排队等待时间、执行时间和各种结果的次数
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class NodeMetrics {
+
+    /**
+     * 从就绪到开始执行 action 的时间，即在线程池队列中等待的时间
+     */
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /**
+     * 从开始执行 action 到结束的时间
+     */
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    /**
+     * 按 {@link ResultState} 的序号统计的结束次数
+     */
+    private final LongAdder[] outcomes = new LongAdder[ResultState.values().length];
+
+    public NodeMetrics() {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    void record(long readyNanos, long startNanos, long endNanos, ResultState state) {
+        //没有执行过 action 的(依赖失败被快速失败、被跳过)只记结果
+        if (startNanos != 0) {
+            queueWait.record(startNanos - readyNanos);
+            execution.record(endNanos - startNanos);
+        }
+        outcomes[state.ordinal()].increment();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+
+    /**
+     * 某种结果的次数
+     */
+    public long getCount(ResultState state) {
+        return outcomes[state.ordinal()].sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("NodeMetrics{queueWait=").append(queueWait)
+                .append(", execution=").append(execution);
+        for (ResultState state : ResultState.values()) {
+            long count = getCount(state);
+            if (count > 0) {
+                builder.append(", ").append(state).append('=').append(count);
+            }
+        }
+        return builder.append('}').toString();
+    }
+}
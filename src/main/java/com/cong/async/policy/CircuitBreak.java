@@ -0,0 +1,55 @@
+package com.cong.async.policy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在 worker 类上，同一个引擎里这个类的所有节点共用一个 {@link CircuitBreaker}。
+ * wrapper 上单独设置的熔断器优先
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CircuitBreak {
+
+    /**
+     * 失败率达到多少时打开
+     */
+    double failureRate() default 0.5;
+
+    /**
+     * 窗口内至少有多少次调用才计算失败率
+     */
+    int minimumCalls() default 20;
+
+    /**
+     * 统计窗口的毫秒数
+     */
+    long window() default 10000;
+
+    /**
+     * 耗时超过多少毫秒算慢调用，0 表示不统计慢调用
+     */
+    long slowCallThreshold() default 0;
+
+    /**
+     * 慢调用比例达到多少时打开
+     */
+    double slowCallRate() default 0.5;
+
+    /**
+     * 打开多少毫秒后进入半开
+     */
+    long openDuration() default 5000;
+
+    /**
+     * 半开时放行的探测调用数
+     */
+    int halfOpenProbes() default 3;
+}
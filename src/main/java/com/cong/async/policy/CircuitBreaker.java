@@ -0,0 +1,355 @@
+package com.cong.async.policy;
+
+import com.cong.async.executor.time.Clock;
+import com.cong.async.worker.ResultState;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一类 worker 的熔断器，无锁实现
+ * <p>
+ * 关闭状态下按滑动时间窗口统计节点的结束状态：TIMEOUT、EXCEPTION 计为失败，耗时超过慢调用阈值的 SUCCESS 计为慢调用，
+ * 窗口内调用数达到下限且失败率或慢调用率超过阈值时打开。打开期间节点不派发到线程池，直接以
+ * {@link ResultState#REJECTED} 和默认值结束；打开一段时间后进入半开状态，只放行有限个探测调用，
+ * 全部成功则关闭，任何一个失败或变慢就重新打开。
+ * <p>
+ * 状态和它的计数放在同一个不可变的阶段对象里，切换状态就是 CAS 替换阶段，旧阶段的计数自然作废
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED,//关闭，正常放行
+        OPEN,//打开，全部拒绝
+        HALF_OPEN //半开，放行有限个探测调用
+    }
+
+    private final Clock clock;
+
+    private final long bucketNanos;
+
+    private final int bucketCount;
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final long slowCallNanos;
+
+    private final double slowCallRateThreshold;
+
+    private final long openNanos;
+
+    private final int halfOpenProbes;
+
+    private final AtomicReference<Phase> phase;
+
+    private final LongAdder shortCircuitCount = new LongAdder();
+
+    private CircuitBreaker(Builder builder) {
+        this.clock = builder.clock == null ? Clock.system() : builder.clock;
+        this.bucketCount = builder.bucketCount;
+        this.bucketNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(builder.window) / bucketCount, 1);
+        this.minimumCalls = builder.minimumCalls;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(builder.slowCallThreshold);
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(builder.openDuration);
+        this.halfOpenProbes = builder.halfOpenProbes;
+        this.phase = new AtomicReference<>(closed());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 申请执行一次调用
+     *
+     * @return 放行时返回许可，调用结束后交给 {@link #record}；熔断时返回 null
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return new Permit(current, clock.nanoTime());
+                case OPEN:
+                    if (clock.nanoTime() - current.openedAt < openNanos) {
+                        shortCircuitCount.increment();
+                        return null;
+                    }
+                    //打开时间到了，进入半开，失败的线程重新读取阶段
+                    phase.compareAndSet(current, new Phase(State.HALF_OPEN, clock.nanoTime(), null));
+                    break;
+                default:
+                    if (current.probes.incrementAndGet() <= halfOpenProbes) {
+                        return new Permit(current, clock.nanoTime());
+                    }
+                    //探测迟迟没有结果(比如结果没有被记录)，过了打开时间后重新开始一轮探测，避免一直停在半开
+                    if (clock.nanoTime() - current.openedAt >= openNanos) {
+                        phase.compareAndSet(current, new Phase(State.HALF_OPEN, clock.nanoTime(), null));
+                        break;
+                    }
+                    shortCircuitCount.increment();
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 熔断器是否打开且还在打开时间内，只读，不会切换状态
+     */
+    public boolean isOpen() {
+        Phase current = phase.get();
+        return current.state == State.OPEN && clock.nanoTime() - current.openedAt < openNanos;
+    }
+
+    /**
+     * 记录一次放行的调用的结果
+     *
+     * @param permit      {@link #tryAcquire()} 返回的许可
+     * @param resultState 节点的结束状态，REJECTED 等没有真正调用的状态不计入统计
+     */
+    public void record(Permit permit, ResultState resultState) {
+        Phase current = phase.get();
+        boolean failure = resultState == ResultState.TIMEOUT || resultState == ResultState.EXCEPTION;
+        if (!failure && resultState != ResultState.SUCCESS) {
+            //没有真正调用，半开时把探测名额还回去
+            if (permit.phase == current && current.state == State.HALF_OPEN) {
+                current.probes.decrementAndGet();
+            }
+            return;
+        }
+        long now = clock.nanoTime();
+        boolean slow = !failure && slowCallNanos > 0 && now - permit.start > slowCallNanos;
+        //状态已经切换过，旧阶段放行的调用不再影响新阶段
+        if (permit.phase != current) {
+            return;
+        }
+        if (current.state == State.HALF_OPEN) {
+            if (failure || slow) {
+                phase.compareAndSet(current, new Phase(State.OPEN, now, null));
+            } else if (current.successes.incrementAndGet() >= halfOpenProbes) {
+                phase.compareAndSet(current, closed());
+            }
+            return;
+        }
+        Window window = current.window;
+        window.record(now, failure, slow);
+        if (window.shouldOpen(now)) {
+            phase.compareAndSet(current, new Phase(State.OPEN, now, null));
+        }
+    }
+
+    public State getState() {
+        return phase.get().state;
+    }
+
+    /**
+     * 因为熔断没有执行的次数
+     */
+    public long getShortCircuitCount() {
+        return shortCircuitCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" +
+                "state=" + getState() +
+                ", shortCircuit=" + getShortCircuitCount() +
+                '}';
+    }
+
+    private Phase closed() {
+        return new Phase(State.CLOSED, 0, new Window());
+    }
+
+    /**
+     * 放行一次调用的凭证
+     */
+    public static final class Permit {
+        private final Phase phase;
+        private final long start;
+
+        private Permit(Phase phase, long start) {
+            this.phase = phase;
+            this.start = start;
+        }
+    }
+
+    /**
+     * 熔断器的一个阶段
+     */
+    private static final class Phase {
+        private final State state;
+        /**
+         * 进入打开或半开的时间
+         */
+        private final long openedAt;
+        /**
+         * 关闭时的统计窗口
+         */
+        private final Window window;
+        /**
+         * 半开时已经放行和已经成功的探测数
+         */
+        private final AtomicInteger probes = new AtomicInteger();
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private Phase(State state, long openedAt, Window window) {
+            this.state = state;
+            this.openedAt = openedAt;
+            this.window = window;
+        }
+    }
+
+    /**
+     * 滑动时间窗口，由若干个桶组成环，过期的桶在下一次落到它上面时被 CAS 替换
+     */
+    private final class Window {
+        private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(bucketCount);
+
+        private void record(long now, boolean failure, boolean slow) {
+            long epoch = Math.floorDiv(now, bucketNanos);
+            int index = (int) Math.floorMod(epoch, (long) bucketCount);
+            Bucket bucket;
+            while ((bucket = buckets.get(index)) == null || bucket.epoch != epoch) {
+                if (bucket != null && bucket.epoch > epoch) {
+                    //已经被更新的时间占用，这次调用算在它上面
+                    break;
+                }
+                if (buckets.compareAndSet(index, bucket, new Bucket(epoch))) {
+                    bucket = buckets.get(index);
+                    break;
+                }
+            }
+            bucket.total.incrementAndGet();
+            if (failure) {
+                bucket.failures.incrementAndGet();
+            } else if (slow) {
+                bucket.slow.incrementAndGet();
+            }
+        }
+
+        private boolean shouldOpen(long now) {
+            long oldest = Math.floorDiv(now, bucketNanos) - bucketCount;
+            long total = 0;
+            long failures = 0;
+            long slow = 0;
+            for (int i = 0; i < bucketCount; i++) {
+                Bucket bucket = buckets.get(i);
+                if (bucket != null && bucket.epoch > oldest) {
+                    total += bucket.total.get();
+                    failures += bucket.failures.get();
+                    slow += bucket.slow.get();
+                }
+            }
+            if (total < minimumCalls) {
+                return false;
+            }
+            return failures >= failureRateThreshold * total
+                    || (slowCallNanos > 0 && slow >= slowCallRateThreshold * total);
+        }
+    }
+
+    private static final class Bucket {
+        private final long epoch;
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger slow = new AtomicInteger();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    public static class Builder {
+        private long window = 10000;
+        private int bucketCount = 10;
+        private int minimumCalls = 20;
+        private double failureRateThreshold = 0.5;
+        private long slowCallThreshold;
+        private double slowCallRateThreshold = 0.5;
+        private long openDuration = 5000;
+        private int halfOpenProbes = 3;
+        private Clock clock;
+
+        /**
+         * 统计窗口的毫秒数和分成的桶数，默认 10 秒、10 个桶
+         */
+        public Builder window(long window, int bucketCount) {
+            if (window <= 0 || bucketCount < 1) {
+                throw new IllegalArgumentException("window and bucketCount must be positive");
+            }
+            this.window = window;
+            this.bucketCount = bucketCount;
+            return this;
+        }
+
+        /**
+         * 窗口内至少有多少次调用才计算失败率，默认 20
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * 失败率达到多少时打开，默认 0.5
+         */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * 耗时超过 slowCallThreshold 毫秒的调用比例达到 slowCallRateThreshold 时打开，默认不统计慢调用
+         */
+        public Builder slowCall(long slowCallThreshold, double slowCallRateThreshold) {
+            this.slowCallThreshold = slowCallThreshold;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * 打开多少毫秒后进入半开，默认 5000
+         */
+        public Builder openDuration(long openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * 半开时放行的探测调用数，默认 3
+         */
+        public Builder halfOpenProbes(int halfOpenProbes) {
+            if (halfOpenProbes < 1) {
+                throw new IllegalArgumentException("halfOpenProbes must be at least 1");
+            }
+            this.halfOpenProbes = halfOpenProbes;
+            return this;
+        }
+
+        /**
+         * 计算窗口和打开时间的时钟，默认系统时钟
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
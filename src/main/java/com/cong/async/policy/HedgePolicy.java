@@ -0,0 +1,118 @@
+package com.cong.async.policy;
+
+import com.cong.async.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对冲请求策略，通过 {@link com.cong.async.wrapper.WorkerWrapper.Builder#hedge(HedgePolicy)} 开启
+ * <p>
+ * 节点的 action 执行超过对冲延迟还没结束时，再发起一次相同的调用，以先结束的为准，用于削掉下游的长尾。
+ * 延迟可以是固定值，也可以取这个策略观察到的成功调用耗时的分位数(如 p95)，样本不足时使用固定值。
+ * 同一个策略对象在所有执行中共享统计，需要 action 是幂等的
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class HedgePolicy {
+
+    private final long delayNanos;
+
+    private final double quantile;
+
+    private final long minSamples;
+
+    private final int maxHedges;
+
+    /**
+     * 成功调用的耗时，只在按分位数对冲时记录
+     */
+    private final LatencyHistogram latency;
+
+    private HedgePolicy(Builder builder) {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(builder.delay);
+        this.quantile = builder.quantile;
+        this.minSamples = builder.minSamples;
+        this.maxHedges = builder.maxHedges;
+        this.latency = quantile > 0 ? new LatencyHistogram() : null;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 当前的对冲延迟，纳秒
+     */
+    public long delayNanos() {
+        if (latency == null || latency.getCount() < minSamples) {
+            return delayNanos;
+        }
+        return latency.percentile(quantile);
+    }
+
+    /**
+     * 记录一次成功调用的耗时
+     */
+    public void record(long nanos) {
+        if (latency != null) {
+            latency.record(nanos);
+        }
+    }
+
+    public int getMaxHedges() {
+        return maxHedges;
+    }
+
+    /**
+     * 观察到的耗时分布，固定延迟时返回 null
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public static class Builder {
+        private long delay = 50;
+        private double quantile;
+        private long minSamples = 100;
+        private int maxHedges = 1;
+
+        /**
+         * 固定的对冲延迟毫秒数，按分位数对冲时作为样本不足时的延迟，默认 50
+         */
+        public Builder delay(long delay) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("delay must not be negative");
+            }
+            this.delay = delay;
+            return this;
+        }
+
+        /**
+         * 按观察到的耗时分位数对冲，如 0.95。样本数达到 minSamples 前使用固定延迟
+         */
+        public Builder percentile(double quantile, long minSamples) {
+            if (quantile <= 0 || quantile > 1) {
+                throw new IllegalArgumentException("quantile must be in (0, 1]");
+            }
+            this.quantile = quantile;
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        /**
+         * 最多额外发起的调用次数，默认 1
+         */
+        public Builder maxHedges(int maxHedges) {
+            if (maxHedges < 1) {
+                throw new IllegalArgumentException("maxHedges must be at least 1");
+            }
+            this.maxHedges = maxHedges;
+            return this;
+        }
+
+        public HedgePolicy build() {
+            return new HedgePolicy(this);
+        }
+    }
+}
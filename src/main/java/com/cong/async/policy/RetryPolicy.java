@@ -0,0 +1,107 @@
+package com.cong.async.policy;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * 节点失败后的重试策略，通过 {@link com.cong.async.wrapper.WorkerWrapper.Builder#retry(RetryPolicy)} 开启
+ * <p>
+ * 退避时间按次数指数增长并加上随机抖动(full jitter)，避免大量节点同时重试。
+ * 等待由引擎的时间轮完成，不占用线程；剩余时间不够等到下一次时不再重试，直接以最后一次的异常结束
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+
+    private final long baseBackoff;
+
+    private final long maxBackoff;
+
+    private final Predicate<Throwable> retryOn;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseBackoff = builder.baseBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.retryOn = builder.retryOn;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 第 attempt 次失败后是否还要重试
+     *
+     * @param attempt 已经执行的次数，从 1 开始
+     */
+    public boolean shouldRetry(int attempt, Throwable ex) {
+        return attempt < maxAttempts && retryOn.test(ex);
+    }
+
+    /**
+     * 第 attempt 次失败后的退避毫秒数，在 [0, min(maxBackoff, baseBackoff * 2^(attempt-1))] 中随机
+     */
+    public long backoff(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        long ceiling = Math.min(maxBackoff, baseBackoff << shift);
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseBackoff() {
+        return baseBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public static class Builder {
+        private int maxAttempts = 3;
+        private long baseBackoff = 10;
+        private long maxBackoff = 1000;
+        private Predicate<Throwable> retryOn = ex -> true;
+
+        /**
+         * 最多执行的次数，包括第一次，默认 3
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * 退避的基数和上限，单位毫秒，默认 10 和 1000
+         */
+        public Builder backoff(long baseBackoff, long maxBackoff) {
+            if (baseBackoff < 0 || maxBackoff < baseBackoff) {
+                throw new IllegalArgumentException("backoff must satisfy 0 <= base <= max");
+            }
+            this.baseBackoff = baseBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * 哪些异常需要重试，默认全部
+         */
+        public Builder retryOn(Predicate<Throwable> retryOn) {
+            this.retryOn = retryOn;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
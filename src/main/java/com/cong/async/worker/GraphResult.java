@@ -0,0 +1,50 @@
+package com.cong.async.worker;
+
+import com.cong.async.wrapper.ExecutionContext;
+
+/**
+ * 整组执行的结果
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class GraphResult {
+
+    /**
+     * 是否在超时前全部执行完毕
+     */
+    private final boolean success;
+
+    /**
+     * 本次执行的上下文，各个 wrapper 的结果都在里面
+     */
+    private final ExecutionContext context;
+
+    public GraphResult(boolean success, ExecutionContext context) {
+        this.success = success;
+        this.context = context;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public ExecutionContext getContext() {
+        return context;
+    }
+
+    public <V> WorkResult<V> getWorkResult(ResultKey<V> key) {
+        return context.getWorkResult(key);
+    }
+
+    public <V> WorkResult<V> getWorkResult(String id) {
+        return context.getWorkResult(id);
+    }
+
+    @Override
+    public String toString() {
+        return "GraphResult{" +
+                "success=" + success +
+                '}';
+    }
+}
@@ -0,0 +1,104 @@
+package com.cong.async.worker;
+
+import com.cong.async.wrapper.GraphPlan;
+
+import java.util.Arrays;
+
+/**
+ * 带类型的结果句柄，用来在 worker 中读取上游的结果
+ * <p>
+ * 通过 wrapper 的 id 标识，第一次在某个执行计划中读取时会把句柄解析成该 wrapper 在计划中的编号并缓存下来，
+ * 之后读取结果只需要一次数组下标访问，不用按字符串查找，也不用手工强转
+ * <pre>
+ * ResultKey&lt;User&gt; USER = ResultKey.of("user");
+ * new WorkerWrapper.Builder&lt;String, User&gt;().resultKey(USER)...
+ * ...
+ * User user = context.getResult(USER);
+ * </pre>
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public final class ResultKey<V> {
+
+    /**
+     * 对应 wrapper 的 id
+     */
+    private final String id;
+
+    /**
+     * 最多缓存几个计划的解析结果
+     */
+    private static final int MAX_BINDINGS = 4;
+
+    /**
+     * 最近使用的几个计划的解析结果，最新的在最前面。同一个计划内不会变化，写时复制，读取不用加锁
+     */
+    private volatile Binding[] bindings = new Binding[0];
+
+    private ResultKey(String id) {
+        if (id == null) {
+            throw new NullPointerException("result key id is null");
+        }
+        this.id = id;
+    }
+
+    public static <V> ResultKey<V> of(String id) {
+        return new ResultKey<>(id);
+    }
+
+    /**
+     * 该句柄在计划中的编号，不存在时返回 -1
+     */
+    public int indexIn(GraphPlan plan) {
+        for (Binding binding : bindings) {
+            if (binding.plan == plan) {
+                return binding.index;
+            }
+        }
+        //慢路径：第一次在该计划中读取，或者同一个句柄在超过 MAX_BINDINGS 个计划间交替使用时，每次未命中都要查找一次
+        int index = plan.indexOf(this);
+        remember(new Binding(plan, index));
+        return index;
+    }
+
+    /**
+     * 放到最前面，超出上限时丢掉最久的，避免动态编译的计划一直被引用
+     */
+    private synchronized void remember(Binding binding) {
+        Binding[] current = bindings;
+        Binding[] next = new Binding[Math.min(current.length + 1, MAX_BINDINGS)];
+        next[0] = binding;
+        int n = 1;
+        for (Binding old : current) {
+            if (n == next.length) {
+                break;
+            }
+            if (old.plan != binding.plan) {
+                next[n++] = old;
+            }
+        }
+        bindings = n == next.length ? next : Arrays.copyOf(next, n);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultKey{" +
+                "id='" + id + '\'' +
+                '}';
+    }
+
+    private static final class Binding {
+        private final GraphPlan plan;
+        private final int index;
+
+        private Binding(GraphPlan plan, int index) {
+            this.plan = plan;
+            this.index = index;
+        }
+    }
+}
@@ -11,5 +11,6 @@ public enum ResultState {
     SUCCESS,//成功
     TIMEOUT,//超时
     EXCEPTION,//异常
+    REJECTED,//执行前被拒绝，如超过并发限制
     DEFAULT  //默认状态
 }
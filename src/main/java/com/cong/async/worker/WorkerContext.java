@@ -0,0 +1,41 @@
+package com.cong.async.worker;
+
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Map;
+
+/**
+ * worker 执行时可以看到的本次执行的上下文
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public interface WorkerContext {
+
+    /**
+     * 获取本次执行中某个 wrapper 的执行结果，不在本次执行中时返回 null
+     */
+    <V> WorkResult<V> getWorkResult(ResultKey<V> key);
+
+    /**
+     * 获取本次执行中某个 wrapper 的结果值，不在本次执行中时返回 null
+     */
+    default <V> V getResult(ResultKey<V> key) {
+        WorkResult<V> workResult = getWorkResult(key);
+        return workResult == null ? null : workResult.getResult();
+    }
+
+    /**
+     * 所有wrapper的id和wrapper映射，给基于 Map 的 {@link com.cong.async.callback.IWorker} 使用。
+     * 注意按 {@link com.cong.async.wrapper.GraphPlan} 重复执行时，wrapper 上的结果并不是本次执行的结果，需要用 ResultKey 读取
+     */
+    Map<String, WorkerWrapper> getForParamUseWrappers();
+
+    /**
+     * 本次执行是否已经被停止(整组超时或调用了 stopNow)。耗时的 worker 可以在循环中检查它，尽早放弃；
+     * 阻塞中的 worker 会收到线程中断
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,1585 @@
+package com.cong.async.wrapper;
+
+import com.cong.async.cache.SingleFlight;
+import com.cong.async.cache.WorkerCache;
+import com.cong.async.callback.IBatchWorker;
+import com.cong.async.callback.ICallback;
+import com.cong.async.callback.IWorker;
+import com.cong.async.exception.RejectedException;
+import com.cong.async.exception.SkippedException;
+import com.cong.async.executor.Async;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.executor.PoolTag;
+import com.cong.async.executor.Prioritized;
+import com.cong.async.executor.WorkStealingExecutor;
+import com.cong.async.executor.time.Clock;
+import com.cong.async.executor.time.HashedWheelTimer;
+import com.cong.async.limit.ConcurrencyLimiter;
+import com.cong.async.metrics.ExecutionListener;
+import com.cong.async.metrics.ExecutionTrace;
+import com.cong.async.policy.CircuitBreaker;
+import com.cong.async.worker.ResultKey;
+import com.cong.async.worker.ResultState;
+import com.cong.async.worker.WorkResult;
+import com.cong.async.worker.WorkerContext;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 一次编排执行的上下文，保存一次执行的全部状态
+ * <p>
+ * {@link GraphPlan} 是不可变的，每个节点的执行状态、依赖计数、结果和入参都按节点编号保存在这里，
+ * 所以同一个计划可以同时被多次执行。每个节点执行结束（成功、失败、跳过）时都会来这里登记，
+ * 全部登记完后 future 完成，调用方只需要等待这个 future，不再需要任何线程阻塞在下游任务上
+ * <p>
+ * 所有的异步派发都经过 {@link #dispatch(int, int, ExecutorService)}，wrapper 自己指定了线程池的就用它自己的，
+ * 指定了 {@link PoolTag} 的用引擎对应的线程池，否则用本次执行的线程池。只有上下游的线程池不同时才切换线程；
+ * 剩余时间统一由 {@link #remainNanos()} 按整组的截止时间计算，截止时间是引擎 {@link Clock} 上的纳秒数，
+ * 不受墙上时间调整的影响
+ * <p>
+ * 节点被停止或超时时，会中断正在执行它的线程，并把本次执行标记为已取消；
+ * 还没有被调度的下游在停止后不会再被派发
+ * <p>
+ * 上下文同时也是传给 worker 的 {@link WorkerContext}，worker 通过 {@link ResultKey} 按编号直接读取上游的结果
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ExecutionContext implements WorkerContext {
+
+    /**
+     * runners 中的占位，表示正在中断该节点的线程
+     */
+    private static final Object INTERRUPTING = new Object();
+
+    /**
+     * 缓存和熔断检查的结果：熔断中，节点会直接以默认值结束
+     */
+    private static final Object SHORT_CIRCUITED = new Object();
+
+    /**
+     * 缓存和熔断检查的结果：没有命中缓存，熔断器放行(许可已经放入 permits)，需要调用 action
+     */
+    private static final Object PASSED = new Object();
+
+    /**
+     * 本次执行的计划
+     */
+    private final GraphPlan plan;
+
+    /**
+     * 本次执行使用的线程池
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * 整组的超时纳秒数
+     */
+    private final long timeoutNanos;
+
+    /**
+     * 计算截止时间的时钟，开始执行时换成引擎的时钟
+     */
+    private volatile Clock clock = Clock.system();
+
+    /**
+     * 整组的截止时间，clock 上的纳秒数
+     */
+    private volatile long deadline;
+
+    /**
+     * 每个节点的执行状态，取值见 {@link WorkerStatusEnum}
+     */
+    private final AtomicIntegerArray states;
+
+    /**
+     * 每个节点已经结束的必须依赖的数量，等于必须依赖总数时才可以被调度
+     */
+    private final AtomicIntegerArray finishedMustDepends;
+
+    /**
+     * 每个节点是否已经被某个上游调度过了，保证只会被调度一次
+     */
+    private final AtomicIntegerArray scheduled;
+
+    /**
+     * 正在执行每个节点的线程，只记录可以被中断的节点；重试、对冲的节点记录它的 NodeAttempts
+     */
+    private final AtomicReferenceArray<Object> runners;
+
+    /**
+     * 本次执行是否已经被停止
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * 每个节点的执行结果
+     */
+    private final WorkResult<?>[] results;
+
+    /**
+     * 本次执行单独设置的入参，没有设置过时使用 wrapper 上的 param
+     */
+    private volatile Object[] params;
+
+    /**
+     * 调用方自己传入的 id 到 wrapper 的映射，执行到的 wrapper 会放进去；为空时使用计划中共享的映射
+     */
+    @SuppressWarnings("rawtypes")
+    private final Map<String, WorkerWrapper> forParamUseWrappers;
+
+    /**
+     * 还没有结束的节点数量
+     */
+    private final AtomicInteger remaining;
+
+    /**
+     * 整组执行完毕的通知
+     */
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    /**
+     * 执行本次上下文的引擎，提供按 {@link PoolTag} 划分的线程池
+     */
+    private volatile AsyncEngine engine;
+
+    /**
+     * 引擎的监听器，为 NOOP 时不记录任何时间戳
+     */
+    private ExecutionListener listener = ExecutionListener.NOOP;
+
+    /**
+     * 每个节点就绪的时间，只有设置了监听器时才创建
+     */
+    private long[] readyNanos;
+
+    /**
+     * 每个节点开始执行 action 的时间，只有设置了监听器时才创建
+     */
+    private long[] startNanos;
+
+    /**
+     * 被熔断器放行的节点的许可，结束时记录结果。第一次有节点被放行时才创建
+     */
+    private volatile AtomicReferenceArray<CircuitBreaker.Permit> permits;
+
+    /**
+     * 调度前已经做过缓存和熔断检查的节点的检查结果，执行时直接使用，不再重复检查。第一次需要时才创建
+     */
+    private volatile AtomicReferenceArray<Object> checks;
+
+    /**
+     * 是否记录本次执行的追踪，需要在开始前设置
+     */
+    private volatile boolean traced;
+
+    /**
+     * 以下三个数组只在追踪时创建：每个节点结束的时间、执行线程、让它就绪的上游编号
+     */
+    private long[] endNanos;
+    private String[] threads;
+    private int[] readiedBy;
+
+    /**
+     * 为一次执行创建上下文，每个节点使用新的结果对象
+     *
+     * @param plan            执行计划
+     * @param executorService 线程池
+     * @param timeout         整组超时毫秒数，从开始执行时计算
+     */
+    public ExecutionContext(GraphPlan plan, ExecutorService executorService, long timeout) {
+        this(plan, executorService, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 为一次执行创建上下文，超时按指定的单位换算成纳秒保存，不会先截断成毫秒
+     *
+     * @param plan            执行计划
+     * @param executorService 线程池
+     * @param timeout         整组超时，从开始执行时计算
+     * @param unit            超时的单位
+     */
+    public ExecutionContext(GraphPlan plan, ExecutorService executorService, long timeout, TimeUnit unit) {
+        this(plan, executorService, unit.toNanos(timeout), null, false);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private ExecutionContext(GraphPlan plan, ExecutorService executorService, long timeoutNanos,
+                             Map<String, WorkerWrapper> forParamUseWrappers, boolean bind) {
+        int size = plan.size();
+        this.plan = plan;
+        this.executorService = executorService;
+        this.timeoutNanos = timeoutNanos;
+        this.deadline = clock.nanoTime() + timeoutNanos;
+        this.forParamUseWrappers = forParamUseWrappers;
+        this.states = new AtomicIntegerArray(size);
+        this.finishedMustDepends = new AtomicIntegerArray(size);
+        this.scheduled = new AtomicIntegerArray(size);
+        this.runners = new AtomicReferenceArray<>(size);
+        this.results = new WorkResult<?>[size];
+        this.remaining = new AtomicInteger(size);
+        for (int i = 0; i < size; i++) {
+            WorkerWrapper<?, ?> node = plan.getNode(i);
+            if (bind) {
+                //结果直接写到 wrapper 自己的结果对象上，兼容先取结果引用再执行的用法
+                results[i] = node.getWorkResult();
+                node.bind(this, i);
+            } else {
+                results[i] = WorkResult.defaultResult();
+            }
+        }
+    }
+
+    /**
+     * 为只执行一次的 wrapper 创建上下文，结果写回到各个 wrapper 上，可以通过 {@link WorkerWrapper#getWorkResult()} 获取
+     */
+    public static ExecutionContext bind(GraphPlan plan, ExecutorService executorService, long timeout) {
+        return bind(plan, executorService, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 同 {@link #bind(GraphPlan, ExecutorService, long)}，超时使用指定的单位
+     */
+    public static ExecutionContext bind(GraphPlan plan, ExecutorService executorService, long timeout, TimeUnit unit) {
+        return new ExecutionContext(plan, executorService, unit.toNanos(timeout), null, true);
+    }
+
+    @SuppressWarnings("rawtypes")
+    static ExecutionContext bind(GraphPlan plan, ExecutorService executorService, long timeout,
+                                 Map<String, WorkerWrapper> forParamUseWrappers) {
+        return new ExecutionContext(plan, executorService, TimeUnit.MILLISECONDS.toNanos(timeout), forParamUseWrappers, true);
+    }
+
+    /**
+     * 开始执行，只派发起点，后续的节点由上游结束时推进
+     *
+     * @param engine 执行本次上下文的引擎
+     */
+    public void start(AsyncEngine engine) {
+        start(engine, false);
+    }
+
+    /**
+     * 开始执行
+     *
+     * @param engine     执行本次上下文的引擎
+     * @param callerRuns 是否由调用线程执行一个起点。调用线程会把它当作本次执行线程池的线程，
+     *                   沿着这个起点继续执行同一线程池的下游，直到没有可以继续的为止；其余起点照常派发
+     */
+    public void start(AsyncEngine engine, boolean callerRuns) {
+        this.engine = engine;
+        this.clock = engine.getClock();
+        this.deadline = clock.nanoTime() + timeoutNanos;
+        this.listener = engine.getListener();
+        if (listener != ExecutionListener.NOOP || traced) {
+            this.readyNanos = new long[plan.size()];
+            this.startNanos = new long[plan.size()];
+        }
+        if (traced) {
+            this.endNanos = new long[plan.size()];
+            this.threads = new String[plan.size()];
+            this.readiedBy = new int[plan.size()];
+            //没有就绪过的节点没有上游，回溯关键路径时到此为止
+            Arrays.fill(readiedBy, -1);
+        }
+        int callerRoot = -1;
+        int[] roots = plan.getRoots();
+        //缓存命中的起点，在调用线程上直接结束
+        int[] hits = null;
+        int hitCount = 0;
+        for (int root : roots) {
+            ready(root, -1);
+            ExecutorService executor = executorOf(root);
+            if (callerRuns && callerRoot < 0 && (executor == null || executor == executorService) && callerCanRun(root)) {
+                callerRoot = root;
+                continue;
+            }
+            if (checkedInline(root)) {
+                if (hits == null) {
+                    hits = new int[roots.length];
+                }
+                hits[hitCount++] = root;
+                continue;
+            }
+            //起点没有上游线程可以借用，INLINE 的起点也派发到本次执行的线程池
+            dispatch(root, -1, executor == null ? executorService : executor);
+        }
+        //调用线程不属于任何线程池，这些起点的下游除了 INLINE 的都会派发出去
+        for (int i = 0; i < hitCount; i++) {
+            work(hits[i], -1, null);
+        }
+        if (callerRoot >= 0) {
+            work(callerRoot, -1, executorService);
+        }
+    }
+
+    /**
+     * 起点是否可以在调用线程上执行。会阻塞的、标记为计算的节点可能长时间占住调用线程，让同步的 start 超过超时才返回
+     */
+    private boolean callerCanRun(int index) {
+        WorkerWrapper<?, ?> node = plan.getNode(index);
+        return !node.isBlocking() && node.getPoolTag() != PoolTag.CPU;
+    }
+
+    /**
+     * 开始工作(主要实现)
+     * from代表这次work是由哪个上游节点发起的，-1 表示起点。
+     * 只有在所有需要等待的依赖都结束后，才会由最后结束的那个依赖调用进来，所以这里不会有任何线程去等待其他任务。
+     * current 是当前线程所属的线程池，下游和它相同时可以直接在当前线程继续
+     */
+    void work(int index, int from, ExecutorService current) {
+        //是否是沿着链从上一个节点直接进来的
+        boolean fused = false;
+        while (true) {
+            WorkerWrapper<?, ?> node = plan.getNode(index);
+            //将自己放到调用方传入的wrapper的集合里去
+            if (forParamUseWrappers != null) {
+                forParamUseWrappers.put(node.getId(), node);
+            }
+            //总的已经超时了，就快速失败，进行下一个。链上的节点只看是否已经被停止，不再读时钟
+            if (fused ? cancelled : remainNanos() <= 0) {
+                if (fastFail(index, WorkerStatusEnum.INIT.getValue(), null)) {
+                    beginNext(index, current);
+                }
+                return;
+            }
+            //如果自己已经执行过了（如必须的依赖失败时已被快速失败，或者被总控超时停止），就不重复处理了
+            if (getState(index) != WorkerStatusEnum.INIT.getValue()) {
+                return;
+            }
+            //如果在执行前需要校验nextWrapper的状态
+            if (node.isNeedCheckNextWrapperResult()) {
+                //如果自己的next链上有已经出结果或已经开始执行的任务了，自己就不用继续了
+                if (!checkNextWrapperResult(index)) {
+                    if (fastFail(index, WorkerStatusEnum.INIT.getValue(), new SkippedException())) {
+                        beginNext(index, current);
+                    }
+                    return;
+                }
+            }
+
+            boolean finished;
+            try {
+                int dependCount = plan.getDepends(index).length;
+                if (dependCount == 0 || from < 0) {
+                    //如果没有任何依赖，说明自己就是第一批要执行的
+                    finished = fire(index);
+                } else if (dependCount == 1) {
+                    //只有一个依赖 A  ->  B
+                    finished = doDependsOneJob(index, from);
+                } else {
+                    //有多个依赖 A C D ->   B，能走到这里说明需要等待的依赖都已经结束了
+                    finished = doDependsMoreJob(index, from);
+                }
+            } catch (Throwable e) {
+                //没有被处理的异常(比如 Error)，还没有结束的节点以异常结束并照常推进下游，整组不会空等到超时
+                finished = abort(index, e);
+            }
+            //只有真正结束了自己的线程才去推进下游，避免重复调度
+            if (!finished) {
+                return;
+            }
+            int nextIndex = plan.getFusedNext(index);
+            ExecutorService executor = nextIndex < 0 ? null : executorOf(nextIndex);
+            if (nextIndex < 0 || (executor != null && executor != current)) {
+                beginNext(index, current);
+                return;
+            }
+            //链上的下一个节点只依赖自己，不需要依赖计数和调度，直接在当前线程接着执行
+            finishOne();
+            ready(nextIndex, index);
+            from = index;
+            index = nextIndex;
+            fused = true;
+        }
+    }
+
+    /**
+     * 进行下一个任务
+     * 自己结束后，给每个下游登记一次依赖完成，依赖全部就绪的下游才会被调度。
+     * INLINE 的下游、一定会快速失败的下游、缓存命中的下游和第一个与当前线程同一线程池的下游直接在当前线程执行，
+     * 其余的提交到各自的线程池，当前线程不等待它们
+     */
+    private void beginNext(int index, ExecutorService current) {
+        //自己已经结束了，登记一下
+        finishOne();
+        int[] next = plan.getNext(index);
+        //如果有下一个wrapper，就开始执行
+        if (next.length == 0) {
+            return;
+        }
+        boolean[] nextMust = plan.getNextMust(index);
+        int first = -1;
+        //除了 first 以外，还要在当前线程处理的下游，大多数情况下用不到
+        int[] inline = null;
+        int inlineCount = 0;
+        for (int i = 0; i < next.length; i++) {
+            int nextIndex = next[i];
+            if (!dependFinished(nextIndex, index, nextMust[i])) {
+                continue;
+            }
+            ready(nextIndex, index);
+            ExecutorService executor = executorOf(nextIndex);
+            //和当前线程在同一个线程池的第一个下游留给当前线程，其余的派发到各自的线程池
+            if (first < 0 && (executor == null || executor == current)) {
+                first = nextIndex;
+                continue;
+            }
+            if (executor == null || willFastFail(nextIndex, index, nextMust[i]) || checkedInline(nextIndex)) {
+                if (inline == null) {
+                    inline = new int[next.length - i];
+                }
+                inline[inlineCount++] = nextIndex;
+                continue;
+            }
+            dispatch(nextIndex, index, executor);
+        }
+        //先把需要切换线程的都派发出去，再依次执行留在当前线程的
+        for (int i = 0; i < inlineCount; i++) {
+            work(inline[i], index, current);
+        }
+        if (first >= 0) {
+            work(first, index, current);
+        }
+    }
+
+    /**
+     * 上游 from 结束后调用，判断节点 index 是否已经可以被调度。fromIsMust 表示 from 是否是它的必须依赖。
+     * 对同一个节点最多只会返回一次 true，保证不会被重复调度
+     */
+    private boolean dependFinished(int index, int from, boolean fromIsMust) {
+        if (getState(index) != WorkerStatusEnum.INIT.getValue()) {
+            return false;
+        }
+        int mustCount = plan.getMustCount(index);
+        //只有一个依赖，或者都是不必须的依赖，任何一个结束都可以执行自己
+        if (mustCount == 0) {
+            return scheduled.compareAndSet(index, 0, 1);
+        }
+        //存在必须完成的依赖，且from不是必须的，就什么也不干
+        if (!fromIsMust) {
+            return false;
+        }
+        //必须的依赖失败了就不用再等其他依赖了，直接进来快速失败；否则等必须的依赖全部结束
+        if (getState(from) != WorkerStatusEnum.ERROR.getValue()
+                && finishedMustDepends.incrementAndGet(index) != mustCount) {
+            return false;
+        }
+        return scheduled.compareAndSet(index, 0, 1);
+    }
+
+    /**
+     * 下游被调度后是否一定会快速失败(不会执行 action)。这样的下游直接在当前线程处理，不再占用线程池
+     */
+    private boolean willFastFail(int index, int from, boolean fromIsMust) {
+        if (cancelled || remainNanos() <= 0) {
+            return true;
+        }
+        ResultState fromState = results[from].getResultState();
+        if (fromState != ResultState.TIMEOUT && fromState != ResultState.EXCEPTION && fromState != ResultState.REJECTED) {
+            return false;
+        }
+        if (plan.getDepends(index).length == 1) {
+            return true;
+        }
+        //都是不必须的依赖时，只有超时会让自己失败；否则必须的依赖失败了自己就失败
+        return plan.getMustCount(index) == 0 ? fromState == ResultState.TIMEOUT : fromIsMust;
+    }
+
+    /**
+     * 调度前对设置了缓存或熔断器的节点做检查，结果留到执行时使用。
+     * 缓存命中或熔断中的节点会直接结束，不需要派发到线程池
+     *
+     * @return 节点是否会直接结束
+     */
+    private boolean checkedInline(int index) {
+        WorkerWrapper<?, ?> node = plan.getNode(index);
+        if (node.getCache() == null && breakerOf(node) == null) {
+            return false;
+        }
+        Object checked = check(index);
+        checksArray().set(index, checked);
+        return checked != PASSED;
+    }
+
+    /**
+     * 查找缓存，没有命中时向熔断器申请许可，放行的许可放入 permits，节点结束时记录结果
+     *
+     * @return 命中的缓存项、{@link #SHORT_CIRCUITED} 或 {@link #PASSED}
+     */
+    @SuppressWarnings("unchecked")
+    private Object check(int index) {
+        WorkerWrapper<?, ?> node = plan.getNode(index);
+        WorkerCache<Object, Object> cache = cacheOf(node);
+        if (cache != null) {
+            WorkerCache.Entry<Object> cached = cache.lookup(getParam(index));
+            if (cached != null) {
+                return cached;
+            }
+        }
+        CircuitBreaker breaker = breakerOf(node);
+        if (breaker == null) {
+            return PASSED;
+        }
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null) {
+            return SHORT_CIRCUITED;
+        }
+        permitsArray().set(index, permit);
+        //放入许可前已经被超时或停止结束了，action 不会再被调用，由自己还回去
+        int state = getState(index);
+        if (state != WorkerStatusEnum.INIT.getValue() && state != WorkerStatusEnum.WORKING.getValue()) {
+            releasePermit(index);
+        }
+        return PASSED;
+    }
+
+    /**
+     * 取出调度前的检查结果，没有检查过时现在检查
+     */
+    private Object takeCheck(int index) {
+        AtomicReferenceArray<Object> array = checks;
+        Object checked = array == null ? null : array.getAndSet(index, null);
+        return checked != null ? checked : check(index);
+    }
+
+    /**
+     * 节点没有调用 action 就结束了，把调度前拿到的熔断许可作为没有真正调用还给熔断器
+     */
+    private void releasePermit(int index) {
+        AtomicReferenceArray<CircuitBreaker.Permit> array = permits;
+        if (array == null) {
+            return;
+        }
+        CircuitBreaker.Permit permit = array.getAndSet(index, null);
+        if (permit != null) {
+            breakerOf(plan.getNode(index)).record(permit, ResultState.REJECTED);
+        }
+    }
+
+    /**
+     * 判断自己下游链路上，是否存在已经出结果的或已经开始执行的
+     * 如果没有返回true，如果有返回false
+     */
+    private boolean checkNextWrapperResult(int index) {
+        //沿唯一的下游往后检查，到自己是最后一个或者后面有并行的多个为止。
+        //只能由前一个节点调度的节点不会提前开始，编译时已经跳过，纯粹的链不需要检查
+        for (int check = plan.getCheckStart(index); check >= 0; check = plan.getCheckStart(check)) {
+            if (getState(check) != WorkerStatusEnum.INIT.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 执行自己的job
+     *
+     * @return 是否由本次调用结束了该任务
+     */
+    private boolean fire(int index) {
+        return workerDoJob(index);
+    }
+
+    /**
+     * 具体的单个 worker 执行任务
+     *
+     * @return 是否由本次调用结束了该任务
+     */
+    @SuppressWarnings("unchecked")
+    private boolean workerDoJob(int index) {
+        //避免重复执行
+        if (!checkIsNullResult(index)) {
+            return false;
+        }
+        WorkerWrapper<?, ?> node = plan.getNode(index);
+        IWorker<Object, Object> worker = workerOf(node);
+        Object param = getParam(index);
+        try {
+            //判断 worker 是否已经在执行中。保证任务不被重复执行
+            if (cASState(index, WorkerStatusEnum.INIT.getValue()
+                    , WorkerStatusEnum.WORKING.getValue())) {
+                return false;
+            }
+            if (startNanos != null) {
+                startNanos[index] = clock.nanoTime();
+                if (threads != null) {
+                    threads[index] = Thread.currentThread().getName();
+                }
+            }
+            //缓存命中时直接使用缓存的结果，熔断中直接以默认值结束，都不触发 begin。调度前检查过的直接使用那次的结果
+            Object checked = takeCheck(index);
+            if (checked instanceof WorkerCache.Entry) {
+                return succeedAndNotify(index, param, ((WorkerCache.Entry<?>) checked).getValue());
+            }
+            if (checked == SHORT_CIRCUITED) {
+                return fastFail(index, WorkerStatusEnum.WORKING.getValue(),
+                        new RejectedException("circuit breaker open: " + breakerOf(node)));
+            }
+            //执行任务触发监听
+            node.getCallback().begin();
+
+            WorkerCache<Object, Object> cache = cacheOf(node);
+            if (worker instanceof IBatchWorker) {
+                //加入批次后让出线程，批次执行完再结束自己。批量节点不支持合并、重试、对冲和并发限制，构建时已经检查过
+                CompletableFuture<Object> batched = engine().getBatchLoader((IBatchWorker<Object, Object>) worker).load(param);
+                completeWhen(index, node, batched.whenComplete((value, ex) -> {
+                    if (ex == null && cache != null) {
+                        cache.put(param, value);
+                    }
+                }));
+                return false;
+            }
+            SingleFlight<Object, Object> singleFlight = singleFlightOf(node);
+            if (singleFlight == null) {
+                return admit(index, null);
+            }
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> shared = singleFlight.tryLead(param, flight);
+            if (shared != null) {
+                //相同的调用已经在执行中，登记后让出线程，由它结束时来结束自己
+                follow(index, param, shared, scheduleTimeout(index, node));
+                return false;
+            }
+            return admit(index, flight);
+        } catch (Throwable e) {
+            //避免重复回调
+            if (!checkIsNullResult(index)) {
+                return false;
+            }
+            return fastFail(index, WorkerStatusEnum.WORKING.getValue(), asException(e));
+        }
+    }
+
+    /**
+     * 经过并发限制后调用 action
+     *
+     * @param flight 作为相同调用的执行者登记的调用，没有开启合并时为 null
+     * @return 是否由本次调用结束了该任务
+     */
+    private boolean admit(int index, CompletableFuture<Object> flight) throws Exception {
+        ConcurrencyLimiter limiter = limiterOf(plan.getNode(index));
+        if (limiter != null) {
+            //超过并发上限时排队，不占用线程，拿到许可后在自己的线程池上继续；队列也满了时直接拒绝
+            ConcurrencyLimiter.Admission admission = limiter.tryAcquire(() -> resumeAsync(index, flight, limiter));
+            if (admission == ConcurrencyLimiter.Admission.QUEUED) {
+                return false;
+            }
+            if (admission == ConcurrencyLimiter.Admission.REJECTED) {
+                RejectedException rejected = new RejectedException("concurrency limit exceeded: " + limiter);
+                if (flight != null) {
+                    land(index, getParam(index), flight, null, rejected);
+                }
+                return fastFail(index, WorkerStatusEnum.WORKING.getValue(), rejected);
+            }
+        }
+        return call(index, flight, limiter);
+    }
+
+    /**
+     * 调用 action 并结束自己，开启了并发限制的已经拿到了许可
+     *
+     * @param flight  作为相同调用的执行者登记的调用，没有开启合并时为 null
+     * @param limiter 并发限制，调用结束后归还许可，没有时为 null
+     * @return 是否由本次调用结束了该任务，重试、对冲的节点异步结束，返回 false
+     */
+    @SuppressWarnings("unchecked")
+    private boolean call(int index, CompletableFuture<Object> flight, ConcurrencyLimiter limiter) throws Exception {
+        WorkerWrapper<?, ?> node = plan.getNode(index);
+        IWorker<Object, Object> worker = workerOf(node);
+        Object param = getParam(index);
+        WorkerCache<Object, Object> cache = cacheOf(node);
+        long begin = limiter == null ? 0 : clock.nanoTime();
+        if (node.getRetryPolicy() != null || node.getHedgePolicy() != null) {
+            //重试和对冲由时间轮调度，所有尝试结束后以最终的结果结束自己
+            NodeAttempts attempts = new NodeAttempts(this, index, worker, param,
+                    node.getRetryPolicy(), node.getHedgePolicy());
+            //登记后，超时和停止时由它中断所有正在执行的调用
+            runners.set(index, attempts);
+            completeWhen(index, node, attempts.getFuture().whenComplete((value, ex) -> {
+                runners.compareAndSet(index, attempts, null);
+                if (limiter != null) {
+                    limiter.release(clock.nanoTime() - begin, ex != null);
+                }
+                if (flight != null) {
+                    land(index, param, flight, value, ex);
+                } else if (ex == null && cache != null) {
+                    cache.put(param, value);
+                }
+            }));
+            attempts.start();
+            return false;
+        }
+        Object resultValue;
+        try {
+            resultValue = flight == null ? invoke(index, node, worker, param)
+                    : lead(index, node, worker, param, flight);
+        } catch (Throwable e) {
+            if (limiter != null) {
+                limiter.release(clock.nanoTime() - begin, true);
+            }
+            throw e;
+        }
+        if (limiter != null) {
+            limiter.release(clock.nanoTime() - begin, false);
+        }
+        //执行者在交出结果前已经放进了缓存
+        if (flight == null && cache != null) {
+            cache.put(param, resultValue);
+        }
+        return succeedAndNotify(index, param, resultValue);
+    }
+
+    /**
+     * 排队的节点拿到许可，在归还许可的线程上调用，转交给节点自己的线程池继续执行
+     */
+    private void resumeAsync(int index, CompletableFuture<Object> flight, ConcurrencyLimiter limiter) {
+        ExecutorService target = targetOf(index);
+        Runnable task = () -> resume(index, flight, limiter, target);
+        try {
+            target.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resume(int index, CompletableFuture<Object> flight, ConcurrencyLimiter limiter, ExecutorService current) {
+        //排队期间已经被超时或停止结束了，归还许可
+        if (cancelled || getState(index) != WorkerStatusEnum.WORKING.getValue()) {
+            limiter.release();
+            if (flight != null) {
+                SingleFlight<Object, Object> singleFlight = singleFlightOf(plan.getNode(index));
+                singleFlight.abandon(getParam(index), flight);
+            }
+            return;
+        }
+        boolean finished;
+        try {
+            finished = call(index, flight, limiter);
+        } catch (Throwable e) {
+            finished = checkIsNullResult(index) && fastFail(index, WorkerStatusEnum.WORKING.getValue(), asException(e));
+        }
+        if (finished) {
+            beginNext(index, current);
+        }
+    }
+
+    /**
+     * 计划中节点的类型参数已经擦除，以下按 Object 使用节点的 worker、回调、缓存、合并和结果
+     */
+    @SuppressWarnings("unchecked")
+    private static IWorker<Object, Object> workerOf(WorkerWrapper<?, ?> node) {
+        return (IWorker<Object, Object>) node.getWorker();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ICallback<Object, Object> callbackOf(WorkerWrapper<?, ?> node) {
+        return (ICallback<Object, Object>) node.getCallback();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WorkerCache<Object, Object> cacheOf(WorkerWrapper<?, ?> node) {
+        return (WorkerCache<Object, Object>) node.getCache();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SingleFlight<Object, Object> singleFlightOf(WorkerWrapper<?, ?> node) {
+        return (SingleFlight<Object, Object>) node.getSingleFlight();
+    }
+
+    @SuppressWarnings("unchecked")
+    private WorkResult<Object> resultOf(int index) {
+        return (WorkResult<Object>) results[index];
+    }
+
+    /**
+     * 节点的熔断器，wrapper 上设置的优先，其次是 worker 类上标注的
+     */
+    private CircuitBreaker breakerOf(WorkerWrapper<?, ?> node) {
+        CircuitBreaker breaker = node.getCircuitBreaker();
+        return breaker != null ? breaker : engine().getCircuitBreaker(node.getWorker());
+    }
+
+    private AtomicReferenceArray<Object> checksArray() {
+        AtomicReferenceArray<Object> array = checks;
+        if (array == null) {
+            synchronized (this) {
+                array = checks;
+                if (array == null) {
+                    array = new AtomicReferenceArray<>(plan.size());
+                    checks = array;
+                }
+            }
+        }
+        return array;
+    }
+
+    private AtomicReferenceArray<CircuitBreaker.Permit> permitsArray() {
+        AtomicReferenceArray<CircuitBreaker.Permit> array = permits;
+        if (array == null) {
+            synchronized (this) {
+                array = permits;
+                if (array == null) {
+                    array = new AtomicReferenceArray<>(plan.size());
+                    permits = array;
+                }
+            }
+        }
+        return array;
+    }
+
+    /**
+     * 节点的并发限制，wrapper 上设置的优先，其次是 worker 类上标注的
+     */
+    private ConcurrencyLimiter limiterOf(WorkerWrapper<?, ?> node) {
+        ConcurrencyLimiter limiter = node.getLimiter();
+        return limiter != null ? limiter : engine().getLimiter(node.getWorker());
+    }
+
+    /**
+     * 以成功结束节点并回调，回调出错不影响结果和下游
+     *
+     * @return 是否由本次调用结束了该任务
+     */
+    @SuppressWarnings("unchecked")
+    private boolean succeedAndNotify(int index, Object param, Object resultValue) {
+        //修改任务状态，从working到finish。如果状态不是在working,说明别的地方已经修改了
+        if (!succeed(index, resultValue)) {
+            return false;
+        }
+        try {
+            //回调成功
+            ICallback<Object, Object> callback = callbackOf(plan.getNode(index));
+            callback.result(true, param, resultOf(index));
+        } catch (Throwable ignored) {
+            //结果已经设置好了，继续推进下游
+        }
+        return true;
+    }
+
+    /**
+     * 把节点从 WORKING 改为 FINISH 并设置结果
+     *
+     * @return 状态已经被别处修改(超时、停止)时返回 false
+     */
+    @SuppressWarnings("unchecked")
+    private boolean succeed(int index, Object resultValue) {
+        if (cASState(index, WorkerStatusEnum.WORKING.getValue(), WorkerStatusEnum.FINISH.getValue())) {
+            return false;
+        }
+        WorkResult<Object> workResult = resultOf(index);
+        workResult.setResultState(ResultState.SUCCESS);
+        workResult.setResult(resultValue);
+        nodeEnd(index);
+        return true;
+    }
+
+    /**
+     * 结束一个处于 WORKING 状态、由别处异步产生结果的节点，可以在任意线程调用。
+     * 结束和推进下游的工作交给节点自己的线程池，不占用调用线程
+     *
+     * @param ex 不为空时节点以异常结束
+     */
+    void completeAsync(int index, Object value, Throwable ex) {
+        ExecutorService target = targetOf(index);
+        Runnable task = () -> {
+            if (complete(index, value, ex)) {
+                beginNext(index, target);
+            }
+        };
+        try {
+            target.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * 以结果或异常结束一个处于 WORKING 状态的节点
+     *
+     * @return 是否由本次调用结束了该任务
+     */
+    @SuppressWarnings("unchecked")
+    private boolean complete(int index, Object value, Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        if (ex != null) {
+            return fastFail(index, WorkerStatusEnum.WORKING.getValue(),
+                    ex instanceof Exception ? (Exception) ex : new ExecutionException(ex));
+        }
+        return succeedAndNotify(index, getParam(index), value);
+    }
+
+    /**
+     * 作为相同调用的执行者执行 action，结束后把结果或异常交给所有等待者
+     */
+    private Object lead(int index, WorkerWrapper<?, ?> node, IWorker<Object, Object> worker, Object param,
+                        CompletableFuture<Object> flight) throws Exception {
+        Object resultValue;
+        try {
+            resultValue = invoke(index, node, worker, param);
+        } catch (Throwable e) {
+            land(index, param, flight, null, e);
+            throw e;
+        }
+        land(index, param, flight, resultValue, null);
+        return resultValue;
+    }
+
+    /**
+     * 执行者结束调用。成功的结果先放进缓存再交给等待者，之后的调用不会既错过调用又错过缓存；
+     * 自己已经超时、被停止或被中断时，结果只对自己有效，放弃这次调用，由等待者重新执行
+     */
+    @SuppressWarnings("unchecked")
+    private void land(int index, Object param, CompletableFuture<Object> flight, Object value, Throwable ex) {
+        WorkerWrapper<?, ?> node = plan.getNode(index);
+        SingleFlight<Object, Object> singleFlight = singleFlightOf(node);
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cancelled || getState(index) != WorkerStatusEnum.WORKING.getValue()
+                || cause instanceof InterruptedException || cause instanceof CancellationException) {
+            singleFlight.abandon(param, flight);
+            return;
+        }
+        WorkerCache<Object, Object> cache = cacheOf(node);
+        if (ex == null && cache != null) {
+            cache.put(param, value);
+        }
+        singleFlight.finish(param, flight, value, ex);
+    }
+
+    /**
+     * 等待相同的调用结束，不阻塞线程。执行者放弃了这次调用时，在自己的线程池上重新尝试
+     *
+     * @param timeoutTask 自己的超时任务，没有设置超时时为 null
+     */
+    private void follow(int index, Object param, CompletableFuture<Object> shared, HashedWheelTimer.Timeout timeoutTask) {
+        shared.whenComplete((value, ex) -> {
+            if (SingleFlight.isAbandoned(ex)) {
+                rejoinAsync(index, param, timeoutTask);
+                return;
+            }
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+            completeAsync(index, value, ex);
+        });
+    }
+
+    private void rejoinAsync(int index, Object param, HashedWheelTimer.Timeout timeoutTask) {
+        ExecutorService target = targetOf(index);
+        Runnable task = () -> rejoin(index, param, timeoutTask, target);
+        try {
+            target.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rejoin(int index, Object param, HashedWheelTimer.Timeout timeoutTask, ExecutorService current) {
+        //等待期间已经被超时或停止结束了
+        if (cancelled || getState(index) != WorkerStatusEnum.WORKING.getValue()) {
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+            return;
+        }
+        SingleFlight<Object, Object> singleFlight = singleFlightOf(plan.getNode(index));
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> shared = singleFlight.tryLead(param, flight);
+        if (shared != null) {
+            follow(index, param, shared, timeoutTask);
+            return;
+        }
+        //自己成为新的执行者，节点超时从重新执行时开始计算
+        if (timeoutTask != null) {
+            timeoutTask.cancel();
+        }
+        boolean finished;
+        try {
+            finished = admit(index, flight);
+        } catch (Throwable e) {
+            finished = checkIsNullResult(index) && fastFail(index, WorkerStatusEnum.WORKING.getValue(), asException(e));
+        }
+        if (finished) {
+            beginNext(index, current);
+        }
+    }
+
+    /**
+     * 按节点自己的超时设置时间轮任务，没有设置超时时返回 null
+     */
+    private HashedWheelTimer.Timeout scheduleTimeout(int index, WorkerWrapper<?, ?> node) {
+        return node.getTimeout() > 0
+                ? engine().getTimer().newTimeout(() -> nodeTimeout(index), node.getTimeout(), TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    /**
+     * 等待别处产生的结果(批次、重试和对冲)，不阻塞线程。设置了超时的照常由时间轮结束自己
+     */
+    private void completeWhen(int index, WorkerWrapper<?, ?> node, CompletableFuture<Object> shared) {
+        HashedWheelTimer.Timeout timeoutTask = scheduleTimeout(index, node);
+        shared.whenComplete((value, ex) -> {
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+            completeAsync(index, value, ex);
+        });
+    }
+
+    /**
+     * 执行 worker 的 action。设置了超时的由时间轮到期后结束自己；可以被中断的记录下执行线程
+     */
+    @SuppressWarnings("unchecked")
+    private Object invoke(int index, WorkerWrapper<?, ?> node, IWorker<Object, Object> worker, Object param) throws Exception {
+        HashedWheelTimer.Timeout timeoutTask = scheduleTimeout(index, node);
+        Thread runner = node.isInterruptible() ? Thread.currentThread() : null;
+        if (runner != null) {
+            runners.set(index, runner);
+        }
+        try {
+            //会阻塞的节点在工作窃取线程池上执行时，让线程池在阻塞期间补充线程
+            if (node.isBlocking()) {
+                return WorkStealingExecutor.block(() -> worker.action(param, this));
+            }
+            return worker.action(param, this);
+        } finally {
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+            if (runner != null) {
+                leave(index, runner);
+            }
+        }
+    }
+
+    private boolean doDependsOneJob(int index, int from) {
+        WorkResult<?> dependResult = results[from];
+        //超时 快速失败
+        if (ResultState.TIMEOUT == dependResult.getResultState()) {
+            defaultResult(index);
+            return fastFail(index, WorkerStatusEnum.INIT.getValue(), null);
+        } else if (ResultState.EXCEPTION == dependResult.getResultState()
+                || ResultState.REJECTED == dependResult.getResultState()) {
+            defaultExResult(index, dependResult.getEx());
+            return fastFail(index, WorkerStatusEnum.INIT.getValue(), null);
+        } else {
+            //如果依赖任务正常，自己开始执行
+            return fire(index);
+        }
+    }
+
+    private boolean doDependsMoreJob(int index, int from) {
+        //如果都是不必须的条件，则自己开始执行
+        if (plan.getMustCount(index) == 0) {
+            if (ResultState.TIMEOUT == results[from].getResultState()) {
+                return fastFail(index, WorkerStatusEnum.INIT.getValue(), null);
+            }
+            return fire(index);
+        }
+
+        //先判断前面必须要执行的依赖任务的执行结果，如果有任何一个失败，那就不用走action了，直接给自己设置为失败，进行下一步就是了
+        return checkExecResult(index);
+    }
+
+    private boolean checkExecResult(int index) {
+        boolean existNoFinish = false;
+        boolean hasError = false;
+        int[] depends = plan.getDepends(index);
+        boolean[] must = plan.getDependMust(index);
+        for (int i = 0; i < depends.length; i++) {
+            if (!must[i]) {
+                continue;
+            }
+            int depend = depends[i];
+            int dependState = getState(depend);
+            WorkResult<?> tempWorkResult = results[depend];
+
+            //如果为 init 和 working 则说明还没执行完，继续看其他依赖有没有失败的
+            if (dependState == WorkerStatusEnum.INIT.getValue() || dependState == WorkerStatusEnum.WORKING.getValue()) {
+                existNoFinish = true;    //存在还没执行完的依赖任务
+                continue;
+            }
+            //如果是超时设置默认结果
+            if (ResultState.TIMEOUT == tempWorkResult.getResultState()) {
+                defaultResult(index);
+                hasError = true;    //存在执行失败的依赖任务
+                break;
+            }
+            //如果为 error 则说明执行失败了
+            if (dependState == WorkerStatusEnum.ERROR.getValue()) {
+                defaultExResult(index, tempWorkResult.getEx());
+                hasError = true;    //存在执行失败的依赖任务
+                break;
+            }
+        }
+        //存在失败的
+        if (hasError) {
+            return fastFail(index, WorkerStatusEnum.INIT.getValue(), null);
+        }
+        //上游都finish了，进行自己
+        if (!existNoFinish) {
+            return fire(index);
+        }
+        return false;
+    }
+
+    /**
+     * 快速失败
+     *
+     * @return 是否由本次调用结束了该任务
+     */
+    private boolean fastFail(int index, int expect, Exception e) {
+        if (!fail(index, expect, e)) {
+            return false;
+        }
+        notifyFailed(index);
+        return true;
+    }
+
+    /**
+     * 以失败结束节点，不回调 callback。可以在时间轮线程上调用，之后由 {@link #notifyFailed(int)} 回调
+     *
+     * @return 是否由本次调用结束了该任务
+     */
+    private boolean fail(int index, int expect, Exception e) {
+        //试图将它从expect状态,改成Error
+        if (cASState(index, expect, WorkerStatusEnum.ERROR.getValue())) {
+            return false;
+        }
+        //正在执行中的，中断执行它的线程，尽快释放线程和连接
+        if (expect == WorkerStatusEnum.WORKING.getValue()) {
+            interrupt(index);
+        }
+
+        //尚未处理过结果
+        if (checkIsNullResult(index)) {
+            if (e == null) {
+                defaultResult(index);
+            } else if (e instanceof RejectedException) {
+                rejectedResult(index, e);
+            } else {
+                defaultExResult(index, e);
+            }
+        }
+        //还没有开始执行的，调度前拿到的熔断许可不计入统计
+        if (expect == WorkerStatusEnum.INIT.getValue()) {
+            releasePermit(index);
+        }
+
+        nodeEnd(index);
+        return true;
+    }
+
+    /**
+     * 回调失败结束的节点
+     */
+    @SuppressWarnings("unchecked")
+    private void notifyFailed(int index) {
+        try {
+            ICallback<Object, Object> callback = callbackOf(plan.getNode(index));
+            callback.result(false, getParam(index), resultOf(index));
+        } catch (Throwable ignored) {
+            //和成功时一样，结果已经设置好了，继续推进下游
+        }
+    }
+
+    /**
+     * 处理节点时抛出了没有被处理的异常，节点还没有结束时以异常结束它
+     *
+     * @return 是否由本次调用结束了该任务
+     */
+    private boolean abort(int index, Throwable e) {
+        int state = getState(index);
+        if (state != WorkerStatusEnum.INIT.getValue() && state != WorkerStatusEnum.WORKING.getValue()) {
+            return false;
+        }
+        return fastFail(index, state, asException(e));
+    }
+
+    private static Exception asException(Throwable e) {
+        return e instanceof Exception ? (Exception) e : new ExecutionException(e);
+    }
+
+    /**
+     * 记录节点就绪的时间，追踪时还记录是哪个上游让它就绪的
+     */
+    private void ready(int index, int from) {
+        if (readyNanos != null) {
+            readyNanos[index] = clock.nanoTime();
+            if (readiedBy != null) {
+                readiedBy[index] = from;
+            }
+        }
+    }
+
+    /**
+     * 记录节点结束，并通知监听器
+     */
+    private void nodeEnd(int index) {
+        AtomicReferenceArray<CircuitBreaker.Permit> array = permits;
+        if (array != null) {
+            CircuitBreaker.Permit permit = array.getAndSet(index, null);
+            if (permit != null) {
+                breakerOf(plan.getNode(index)).record(permit, results[index].getResultState());
+            }
+        }
+        if (readyNanos == null) {
+            return;
+        }
+        long now = clock.nanoTime();
+        if (endNanos != null) {
+            endNanos[index] = now;
+            //没有执行过 action 的节点，记录结束它的线程
+            if (threads[index] == null) {
+                threads[index] = Thread.currentThread().getName();
+            }
+        }
+        listener.onNodeEnd(this, index, readyNanos[index], startNanos[index], now, results[index].getResultState());
+    }
+
+    /**
+     * 单个 wrapper 超时，在时间轮线程上调用。以 TIMEOUT 结束自己并中断执行线程都在这里完成，
+     * 线程池被占满(比如正被自己占着)时超时也能按时生效；回调和推进下游交给线程池去做
+     */
+    private void nodeTimeout(int index) {
+        if (!fail(index, WorkerStatusEnum.WORKING.getValue(), null)) {
+            return;
+        }
+        ExecutorService target = targetOf(index);
+        try {
+            target.execute(() -> {
+                notifyFailed(index);
+                beginNext(index, target);
+            });
+        } catch (RejectedExecutionException e) {
+            //当前是时间轮线程，下游都派发出去
+            notifyFailed(index);
+            beginNext(index, null);
+        }
+    }
+
+    /**
+     * 中断正在执行该节点的线程，重试、对冲的节点中断所有正在执行的调用
+     */
+    private void interrupt(int index) {
+        Object runner = runners.get(index);
+        if (runner instanceof Thread && runners.compareAndSet(index, runner, INTERRUPTING)) {
+            ((Thread) runner).interrupt();
+            runners.set(index, null);
+        } else if (runner instanceof NodeAttempts) {
+            ((NodeAttempts) runner).interruptAll();
+        }
+    }
+
+    /**
+     * 节点的 action 返回后调用。如果此时恰好有人在中断自己，等中断发出后清掉中断标记，
+     * 避免中断落到这个线程之后执行的其他任务上
+     */
+    private void leave(int index, Thread runner) {
+        if (runners.compareAndSet(index, runner, null)) {
+            return;
+        }
+        while (runners.get(index) == INTERRUPTING) {
+            Thread.yield();
+        }
+        Thread.interrupted();
+    }
+
+    /**
+     * 总控制台超时，停止所有任务。执行中的会被中断，还没有被调度的不会再被派发
+     */
+    public void stopNow() {
+        stop().run();
+    }
+
+    /**
+     * 停止所有任务但先不回调：标记停止，以 TIMEOUT 结束所有还没有结束的节点并中断执行中的线程。
+     * 不会执行用户代码，可以在时间轮线程上调用
+     *
+     * @return 回调这次被结束的节点的任务，调用方决定在哪个线程上执行
+     */
+    public Runnable stop() {
+        cancelled = true;
+        int size = plan.size();
+        boolean[] stopped = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            int state = getState(i);
+            if (state == WorkerStatusEnum.INIT.getValue() || state == WorkerStatusEnum.WORKING.getValue()) {
+                stopped[i] = fail(i, state, null);
+            }
+        }
+        return () -> {
+            for (int i = 0; i < size; i++) {
+                if (stopped[i]) {
+                    notifyFailed(i);
+                }
+            }
+        };
+    }
+
+    /**
+     * 停止单个任务
+     */
+    void stopNow(int index) {
+        int state = getState(index);
+        if (state == WorkerStatusEnum.INIT.getValue() || state == WorkerStatusEnum.WORKING.getValue()) {
+            fastFail(index, state, null);
+        }
+    }
+
+    /**
+     * 检查结果为空
+     */
+    private boolean checkIsNullResult(int index) {
+        return ResultState.DEFAULT == results[index].getResultState();
+    }
+
+    /**
+     * 比较和设置状态
+     *
+     * @return 设置失败时返回 true
+     */
+    private boolean cASState(int index, int expect, int update) {
+        return !states.compareAndSet(index, expect, update);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void defaultResult(int index) {
+        WorkResult<Object> workResult = resultOf(index);
+        workResult.setResultState(ResultState.TIMEOUT);
+        workResult.setResult(plan.getNode(index).getWorker().defaultValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rejectedResult(int index, Exception ex) {
+        WorkResult<Object> workResult = resultOf(index);
+        workResult.setResultState(ResultState.REJECTED);
+        workResult.setResult(plan.getNode(index).getWorker().defaultValue());
+        workResult.setEx(ex);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void defaultExResult(int index, Exception ex) {
+        WorkResult<Object> workResult = resultOf(index);
+        workResult.setResultState(ResultState.EXCEPTION);
+        workResult.setResult(plan.getNode(index).getWorker().defaultValue());
+        workResult.setEx(ex);
+    }
+
+    /**
+     * 某个节点已经结束，最后一个结束的节点负责完成 future
+     */
+    private void finishOne() {
+        if (remaining.decrementAndGet() == 0) {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * 把节点的执行派发到指定的线程池上。线程池拒绝时节点以 REJECTED 结束并继续推进下游，整组不会空等到超时
+     */
+    private void dispatch(int index, int from, ExecutorService executor) {
+        try {
+            executor.execute(new ReadyTask(index, from, executor));
+        } catch (RejectedExecutionException e) {
+            if (fastFail(index, WorkerStatusEnum.INIT.getValue(), new RejectedException("executor rejected: " + executor, e))) {
+                //当前线程不属于任何线程池，下游照常派发
+                beginNext(index, null);
+            }
+        }
+    }
+
+    /**
+     * 派发到线程池的就绪节点，带着节点的优先级，支持优先级的线程池按它排队
+     */
+    private final class ReadyTask implements Runnable, Prioritized {
+        private final int index;
+        private final int from;
+        private final ExecutorService executor;
+
+        private ReadyTask(int index, int from, ExecutorService executor) {
+            this.index = index;
+            this.from = from;
+            this.executor = executor;
+        }
+
+        @Override
+        public long priority() {
+            return plan.getPriority(index);
+        }
+
+        /**
+         * 以本次执行开始的时间作为组，先开始的执行先完成
+         */
+        @Override
+        public long group() {
+            return deadline - timeoutNanos;
+        }
+
+        @Override
+        public void run() {
+            //节点抛出的异常在 work 中已经处理，出错的节点以异常结束并推进下游
+            work(index, from, executor);
+        }
+    }
+
+    /**
+     * 在别的线程(时间轮、批次、共享的调用)上产生结果后，继续处理节点使用的线程池。INLINE 的节点使用本次执行的线程池
+     */
+    ExecutorService targetOf(int index) {
+        ExecutorService executor = executorOf(index);
+        return executor == null ? executorService : executor;
+    }
+
+    /**
+     * 节点应该运行的线程池。wrapper 自己指定的线程池优先，其次是 {@link PoolTag} 对应的引擎线程池，
+     * 都没有时使用本次执行的线程池；INLINE 返回 null，表示在让它就绪的线程上执行
+     */
+    private ExecutorService executorOf(int index) {
+        WorkerWrapper<?, ?> node = plan.getNode(index);
+        if (node.getExecutorService() != null) {
+            return node.getExecutorService();
+        }
+        PoolTag poolTag = node.getPoolTag();
+        if (poolTag == null) {
+            return executorService;
+        }
+        if (poolTag == PoolTag.INLINE) {
+            return null;
+        }
+        return engine().getExecutor(poolTag);
+    }
+
+    /**
+     * 执行本次上下文的引擎，直接调用 {@link WorkerWrapper#work} 时没有引擎，使用默认引擎
+     */
+    AsyncEngine engine() {
+        AsyncEngine current = engine;
+        return current == null ? Async.getDefaultEngine() : current;
+    }
+
+    /**
+     * 距离整组截止时间还剩多少毫秒
+     */
+    public long remainTime() {
+        return TimeUnit.NANOSECONDS.toMillis(remainNanos());
+    }
+
+    /**
+     * 距离整组截止时间还剩多少纳秒
+     */
+    public long remainNanos() {
+        return deadline - clock.nanoTime();
+    }
+
+    int getState(int index) {
+        return states.get(index);
+    }
+
+    /**
+     * 设置本次执行中某个节点的入参，需要在 {@link #start(AsyncEngine)} 之前调用
+     */
+    public void setParam(int index, Object param) {
+        Object[] current = params;
+        if (current == null) {
+            current = new Object[plan.size()];
+            for (int i = 0; i < current.length; i++) {
+                current[i] = plan.getNode(i).getParam();
+            }
+        }
+        current[index] = param;
+        params = current;
+    }
+
+    public Object getParam(int index) {
+        Object[] current = params;
+        return current == null ? plan.getNode(index).getParam() : current[index];
+    }
+
+    /**
+     * 获取本次执行中某个节点的结果
+     */
+    @SuppressWarnings("unchecked")
+    public <V> WorkResult<V> getWorkResult(int index) {
+        return (WorkResult<V>) results[index];
+    }
+
+    /**
+     * 根据 wrapper 的 id 获取本次执行中该节点的结果，不存在时返回 null
+     */
+    public <V> WorkResult<V> getWorkResult(String id) {
+        int index = plan.indexOf(id);
+        return index < 0 ? null : getWorkResult(index);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> WorkResult<V> getWorkResult(ResultKey<V> key) {
+        int index = key.indexIn(plan);
+        return index < 0 ? null : (WorkResult<V>) results[index];
+    }
+
+    /**
+     * 记录本次执行的追踪，需要在开始执行前调用，结束后通过 {@link #getTrace()} 获取
+     */
+    public void enableTracing() {
+        this.traced = true;
+    }
+
+    public boolean isTraced() {
+        return traced;
+    }
+
+    /**
+     * 本次执行的追踪记录，没有开启追踪时返回 null。执行还没有结束时，没有结束的节点不会出现在导出的事件中
+     */
+    public ExecutionTrace getTrace() {
+        if (!traced || endNanos == null) {
+            return null;
+        }
+        ResultState[] states = new ResultState[plan.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = results[i].getResultState();
+        }
+        return new ExecutionTrace(plan, readyNanos.clone(), startNanos.clone(), endNanos.clone(),
+                threads.clone(), readiedBy.clone(), states);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public GraphPlan getPlan() {
+        return plan;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Map<String, WorkerWrapper> getForParamUseWrappers() {
+        return forParamUseWrappers == null ? plan.getWrappers() : forParamUseWrappers;
+    }
+
+    public CompletableFuture<Void> getFuture() {
+        return future;
+    }
+}
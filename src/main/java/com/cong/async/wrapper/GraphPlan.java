@@ -0,0 +1,500 @@
+package com.cong.async.wrapper;
+
+import com.cong.async.worker.DependWrapper;
+import com.cong.async.worker.ResultKey;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * 编译好的执行计划(不可变，线程安全)
+ * <p>
+ * 把用 {@link WorkerWrapper.Builder} 搭好的图编译一次，得到按拓扑序排列的节点数组和边数组，
+ * 之后可以被任意多次、任意多线程同时执行。每次执行的状态(执行状态、依赖计数、结果、入参)都保存在
+ * {@link ExecutionContext} 中，计划本身不会被修改
+ * <p>
+ * 计划只包含从起点沿 next 可达的 wrapper，依赖到计划之外的 wrapper 不参与调度。
+ * 编译时给每个 wrapper 分配一个从 0 开始的连续编号，执行期间的所有状态都用数组按编号存取，
+ * 不再对 wrapper 做任何哈希或深度比较
+ * <p>
+ * 编译时按图的形状给每个节点计算优先级：从自己到终点的最长路径上的节点数。每个节点的下游和起点都按优先级从高到低排列，
+ * 同时就绪的节点中关键路径上的先执行。优先级可以通过 {@link #updatePriorities(ToLongFunction)} 按实测耗时重新计算，
+ * 它只影响支持优先级的线程池中的排队顺序
+ * <p>
+ * 编译时还会找出线性的链：下游只有一个、且这个下游只依赖自己的节点，运行时在同一个线程上循环执行整条链，
+ * 每个节点照常回调和记录结果，但不再经过调度、依赖计数和递归
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public final class GraphPlan {
+
+    /**
+     * 按拓扑序排列的所有节点，数组下标就是节点的编号
+     */
+    private final WorkerWrapper<?, ?>[] nodes;
+
+    /**
+     * 每个节点的下游节点编号
+     */
+    private final int[][] next;
+
+    /**
+     * 与 next 一一对应，自己是否是该下游的必须依赖
+     */
+    private final boolean[][] nextMust;
+
+    /**
+     * 每个节点依赖的上游节点编号
+     */
+    private final int[][] depends;
+
+    /**
+     * 与 depends 一一对应，该依赖是否必须完成
+     */
+    private final boolean[][] dependMust;
+
+    /**
+     * 每个节点需要等待的必须依赖数量，为 0 时表示任何一个依赖结束都可以执行自己
+     */
+    private final int[] mustCount;
+
+    /**
+     * 起点的编号
+     */
+    private final int[] roots;
+
+    /**
+     * 链上的下一个节点：自己唯一的下游，且它只依赖自己；不在链上时为 -1
+     */
+    private final int[] fusedNext;
+
+    /**
+     * 检查下游链路是否已经开始执行时，沿唯一下游往后第一个可能被别的节点提前调度的节点，没有时为 -1。
+     * 它之前的节点只能由自己这条链调度，不用检查
+     */
+    private final int[] checkStart;
+
+    /**
+     * 每个节点的优先级，即从自己到终点的最长路径长度。只会整体替换
+     */
+    private volatile long[] priorities;
+
+    /**
+     * wrapper 的 id 到编号的映射
+     */
+    private final Map<String, Integer> indexes;
+
+    /**
+     * 编译过程中使用的 wrapper 到编号的映射
+     */
+    private final Map<WorkerWrapper<?, ?>, Integer> wrapperIndexes;
+
+    /**
+     * 各个 wrapper 的结果句柄到编号的映射，按引用比较。id 重复时每个句柄仍然对应自己的 wrapper
+     */
+    private final Map<ResultKey<?>, Integer> keyIndexes;
+
+    /**
+     * id 到 wrapper 的只读映射，只有基于 Map 的 worker 用到时才创建，所有执行共享
+     */
+    private volatile Map<String, WorkerWrapper> wrappers;
+
+    private GraphPlan(List<WorkerWrapper<?, ?>> rootWrappers) {
+        List<WorkerWrapper<?, ?>> reachable = collect(rootWrappers);
+        int size = reachable.size();
+        Map<WorkerWrapper<?, ?>, Integer> position = new IdentityHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            position.put(reachable.get(i), i);
+        }
+        int[][] rawNext = new int[size][];
+        int[] inDegree = new int[size];
+        //按编号打标记用于去重，标记值为当前处理的节点编号 + 1，不需要每次清空
+        int[] mark = new int[size];
+        for (int i = 0; i < size; i++) {
+            rawNext[i] = nextOf(reachable.get(i), position, mark, i + 1);
+            for (int j : rawNext[i]) {
+                inDegree[j]++;
+            }
+        }
+
+        //Kahn 拓扑排序，顺便发现循环依赖
+        int[] order = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (inDegree[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            for (int j : rawNext[order[head++]]) {
+                if (--inDegree[j] == 0) {
+                    order[tail++] = j;
+                }
+            }
+        }
+        if (tail != size) {
+            throw new IllegalStateException("wrapper 之间存在循环依赖");
+        }
+
+        this.nodes = new WorkerWrapper<?, ?>[size];
+        this.wrapperIndexes = new IdentityHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            nodes[i] = reachable.get(order[i]);
+            wrapperIndexes.put(nodes[i], i);
+        }
+        this.next = new int[size][];
+        this.nextMust = new boolean[size][];
+        this.depends = new int[size][];
+        this.dependMust = new boolean[size][];
+        this.mustCount = new int[size];
+        Map<String, Integer> ids = new HashMap<>(size * 2);
+        this.keyIndexes = new IdentityHashMap<>(size * 2);
+        Arrays.fill(mark, 0);
+        for (int i = 0; i < size; i++) {
+            next[i] = nextOf(nodes[i], wrapperIndexes, mark, i + 1);
+            ids.put(nodes[i].getId(), i);
+            keyIndexes.put(nodes[i].getResultKey(), i);
+        }
+        //依赖用位置打标记，标记值为位置 + 1
+        Arrays.fill(mark, 0);
+        for (int i = 0; i < size; i++) {
+            dependsOf(i, mark);
+        }
+        nextMustOf(mark);
+        this.indexes = Collections.unmodifiableMap(ids);
+        this.priorities = longestPaths(node -> 1);
+        for (int i = 0; i < size; i++) {
+            sortByPriority(next[i], nextMust[i]);
+        }
+
+        Set<WorkerWrapper<?, ?>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Integer> rootIndexes = new ArrayList<>();
+        for (WorkerWrapper<?, ?> root : rootWrappers) {
+            if (seen.add(root)) {
+                rootIndexes.add(wrapperIndexes.get(root));
+            }
+        }
+        this.roots = new int[rootIndexes.size()];
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = rootIndexes.get(i);
+        }
+        sortByPriority(roots, null);
+        this.fusedNext = new int[size];
+        this.checkStart = new int[size];
+        fuseChains();
+    }
+
+    /**
+     * 找出线性的链，并计算每个节点下游链路上需要检查的起点
+     */
+    private void fuseChains() {
+        int size = nodes.length;
+        //能调度每个节点的上游数量，起点额外算一次
+        int[] schedulers = new int[size];
+        for (int i = 0; i < size; i++) {
+            for (int j : next[i]) {
+                schedulers[j]++;
+            }
+        }
+        for (int root : roots) {
+            schedulers[root]++;
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            fusedNext[i] = -1;
+            checkStart[i] = -1;
+            if (next[i].length != 1) {
+                continue;
+            }
+            int j = next[i][0];
+            if (schedulers[j] == 1) {
+                //只能由自己调度的下游不会提前开始，跳过它继续往后找
+                checkStart[i] = checkStart[j];
+                if (depends[j].length == 1 && depends[j][0] == i) {
+                    fusedNext[i] = j;
+                }
+            } else {
+                checkStart[i] = j;
+            }
+        }
+    }
+
+    /**
+     * 按拓扑序的逆序计算每个节点到终点的最长路径，路径长度为路径上所有节点的代价之和
+     */
+    private long[] longestPaths(ToLongFunction<WorkerWrapper<?, ?>> cost) {
+        long[] result = new long[nodes.length];
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            long longest = 0;
+            for (int j : next[i]) {
+                longest = Math.max(longest, result[j]);
+            }
+            result[i] = Math.max(cost.applyAsLong(nodes[i]), 0) + longest;
+        }
+        return result;
+    }
+
+    /**
+     * 按优先级从高到低稳定排序，must 与 indexes 一一对应，一起移动。数组都很短，用插入排序
+     */
+    private void sortByPriority(int[] indexes, boolean[] must) {
+        for (int i = 1; i < indexes.length; i++) {
+            int index = indexes[i];
+            boolean flag = must != null && must[i];
+            int j = i - 1;
+            while (j >= 0 && priorities[indexes[j]] < priorities[index]) {
+                indexes[j + 1] = indexes[j];
+                if (must != null) {
+                    must[j + 1] = must[j];
+                }
+                j--;
+            }
+            indexes[j + 1] = index;
+            if (must != null) {
+                must[j + 1] = flag;
+            }
+        }
+    }
+
+    /**
+     * 按每个节点的代价(比如实测的平均耗时，见 {@link com.cong.async.metrics.HistogramListener#executionCost()})
+     * 重新计算优先级。下游的执行顺序在编译时已经确定，不受影响；新的优先级用于支持优先级的线程池中的排队顺序
+     *
+     * @param cost 节点的代价，负数按 0 计算
+     */
+    public void updatePriorities(ToLongFunction<WorkerWrapper<?, ?>> cost) {
+        priorities = longestPaths(cost);
+    }
+
+    /**
+     * 节点的优先级，越大越先执行
+     */
+    public long getPriority(int index) {
+        return priorities[index];
+    }
+
+    /**
+     * 从起点编译执行计划
+     */
+    public static GraphPlan of(WorkerWrapper<?, ?>... roots) {
+        return of(Arrays.asList(roots));
+    }
+
+    /**
+     * 从起点编译执行计划
+     */
+    @SuppressWarnings("unchecked")
+    public static GraphPlan of(List<? extends WorkerWrapper> roots) {
+        if (roots == null || roots.isEmpty()) {
+            throw new IllegalArgumentException("roots is empty");
+        }
+        return new GraphPlan((List<WorkerWrapper<?, ?>>) roots);
+    }
+
+    /**
+     * 沿 next 找出所有可达的 wrapper
+     */
+    private static List<WorkerWrapper<?, ?>> collect(List<WorkerWrapper<?, ?>> roots) {
+        Set<WorkerWrapper<?, ?>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<WorkerWrapper<?, ?>> result = new ArrayList<>();
+        Deque<WorkerWrapper<?, ?>> stack = new ArrayDeque<>();
+        for (WorkerWrapper<?, ?> root : roots) {
+            if (root == null) {
+                throw new NullPointerException("root wrapper is null");
+            }
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            WorkerWrapper<?, ?> wrapper = stack.pop();
+            if (!seen.add(wrapper)) {
+                continue;
+            }
+            result.add(wrapper);
+            if (wrapper.getNextWrappers() != null) {
+                for (WorkerWrapper<?, ?> nextWrapper : wrapper.getNextWrappers()) {
+                    stack.push(nextWrapper);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int[] nextOf(WorkerWrapper<?, ?> wrapper, Map<WorkerWrapper<?, ?>, Integer> position, int[] mark, int stamp) {
+        List<WorkerWrapper<?, ?>> nextWrappers = wrapper.getNextWrappers();
+        if (nextWrappers == null || nextWrappers.isEmpty()) {
+            return new int[0];
+        }
+        int[] result = new int[nextWrappers.size()];
+        int count = 0;
+        for (WorkerWrapper<?, ?> nextWrapper : nextWrappers) {
+            int index = position.get(nextWrapper);
+            if (mark[index] != stamp) {
+                mark[index] = stamp;
+                result[count++] = index;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 计算节点 i 在计划内的依赖，同一个依赖重复添加时只保留一个，只要有一次是必须的就算必须。
+     * mark 记录每个上游在 depends[i] 中的位置 + 1，处理完后复位
+     */
+    private void dependsOf(int i, int[] mark) {
+        List<DependWrapper> dependWrappers = nodes[i].getDependWrappers();
+        int total = dependWrappers == null ? 0 : dependWrappers.size();
+        int[] indexes = new int[total];
+        boolean[] must = new boolean[total];
+        int count = 0;
+        for (int k = 0; k < total; k++) {
+            DependWrapper dependWrapper = dependWrappers.get(k);
+            Integer index = wrapperIndexes.get(dependWrapper.getDepWrapper());
+            if (index == null) {
+                continue;
+            }
+            if (mark[index] > 0) {
+                must[mark[index] - 1] |= dependWrapper.isMust();
+                continue;
+            }
+            mark[index] = count + 1;
+            indexes[count] = index;
+            must[count++] = dependWrapper.isMust();
+        }
+        for (int k = 0; k < count; k++) {
+            mark[indexes[k]] = 0;
+        }
+        depends[i] = count == total ? indexes : Arrays.copyOf(indexes, count);
+        dependMust[i] = count == total ? must : Arrays.copyOf(must, count);
+        //只有一个依赖时，不管是否必须，它结束了就可以执行自己
+        if (count > 1) {
+            for (int k = 0; k < count; k++) {
+                if (must[k]) {
+                    mustCount[i]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 把依赖上的 must 标记转到对应的 next 边上，运行时上游结束时就不用再去下游的依赖里查找自己了。
+     * 先把所有依赖边按上游分桶，再逐个上游在 mark 上标记它的下游，整体是线性的
+     */
+    private void nextMustOf(int[] mark) {
+        int size = nodes.length;
+        int[] start = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            for (int from : depends[i]) {
+                start[from + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] cursor = Arrays.copyOf(start, size);
+        int[] targets = new int[start[size]];
+        boolean[] targetMust = new boolean[start[size]];
+        for (int i = 0; i < size; i++) {
+            for (int k = 0; k < depends[i].length; k++) {
+                int slot = cursor[depends[i][k]]++;
+                targets[slot] = i;
+                targetMust[slot] = dependMust[i][k];
+            }
+        }
+        for (int from = 0; from < size; from++) {
+            for (int slot = start[from]; slot < start[from + 1]; slot++) {
+                mark[targets[slot]] = targetMust[slot] ? 2 : 1;
+            }
+            nextMust[from] = new boolean[next[from].length];
+            for (int k = 0; k < next[from].length; k++) {
+                nextMust[from][k] = mark[next[from][k]] == 2;
+            }
+            for (int slot = start[from]; slot < start[from + 1]; slot++) {
+                mark[targets[slot]] = 0;
+            }
+        }
+    }
+
+    /**
+     * 节点数量
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * 根据 wrapper 的 id 获取节点编号，不存在时返回 -1
+     */
+    public int indexOf(String id) {
+        Integer index = indexes.get(id);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 根据结果句柄获取节点编号，不是计划中 wrapper 的句柄时按 id 查找，不存在时返回 -1
+     */
+    public int indexOf(ResultKey<?> key) {
+        Integer index = keyIndexes.get(key);
+        return index == null ? indexOf(key.getId()) : index;
+    }
+
+    /**
+     * 获取 wrapper 在计划中的编号，不存在时返回 -1
+     */
+    public int indexOf(WorkerWrapper<?, ?> wrapper) {
+        Integer index = wrapperIndexes.get(wrapper);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * id 到 wrapper 的只读映射
+     */
+    public Map<String, WorkerWrapper> getWrappers() {
+        Map<String, WorkerWrapper> current = wrappers;
+        if (current == null) {
+            current = new HashMap<>(nodes.length * 2);
+            for (WorkerWrapper<?, ?> node : nodes) {
+                current.put(node.getId(), node);
+            }
+            current = Collections.unmodifiableMap(current);
+            wrappers = current;
+        }
+        return current;
+    }
+
+    public WorkerWrapper<?, ?> getNode(int index) {
+        return nodes[index];
+    }
+
+    int[] getNext(int index) {
+        return next[index];
+    }
+
+    boolean[] getNextMust(int index) {
+        return nextMust[index];
+    }
+
+    int[] getDepends(int index) {
+        return depends[index];
+    }
+
+    boolean[] getDependMust(int index) {
+        return dependMust[index];
+    }
+
+    int getMustCount(int index) {
+        return mustCount[index];
+    }
+
+    int getFusedNext(int index) {
+        return fusedNext[index];
+    }
+
+    int getCheckStart(int index) {
+        return checkStart[index];
+    }
+
+    int[] getRoots() {
+        return roots;
+    }
+}
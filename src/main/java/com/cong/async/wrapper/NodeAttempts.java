@@ -0,0 +1,244 @@
+package com.cong.async.wrapper;
+
+import com.cong.async.callback.IWorker;
+import com.cong.async.executor.WorkStealingExecutor;
+import com.cong.async.executor.time.Clock;
+import com.cong.async.executor.time.HashedWheelTimer;
+import com.cong.async.policy.HedgePolicy;
+import com.cong.async.policy.RetryPolicy;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 一个开启了重试或对冲的节点的一次执行
+ * <p>
+ * 每一轮先执行一次 action，超过对冲延迟还没结束时在节点的线程池上再发起一次，以先成功的为准；
+ * 一轮中所有调用都失败后按重试策略在时间轮上等待退避时间，再开始下一轮。
+ * 节点已经被超时或停止结束时不再发起新的调用，可以被中断的节点同时中断正在执行的调用；
+ * 有调用成功后，同一轮中还在执行的其他调用也会被中断
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+final class NodeAttempts {
+
+    /**
+     * 槽位中的占位，表示正在中断这个调用的线程
+     */
+    private static final Object INTERRUPTING = new Object();
+
+    private final ExecutionContext context;
+
+    private final int index;
+
+    private final IWorker<Object, Object> worker;
+
+    private final Object param;
+
+    /**
+     * 调用是否会阻塞线程，会阻塞的通过 {@link WorkStealingExecutor#block} 执行
+     */
+    private final boolean blocking;
+
+    private final RetryPolicy retryPolicy;
+
+    private final HedgePolicy hedgePolicy;
+
+    private final HashedWheelTimer timer;
+
+    private final Clock clock;
+
+    private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+    /**
+     * 本轮还在执行的调用数，降到 0 表示本轮结束
+     */
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * 本轮已经发起的对冲次数
+     */
+    private final AtomicInteger hedges = new AtomicInteger();
+
+    private volatile HashedWheelTimer.Timeout hedgeTask;
+
+    /**
+     * 是否可以中断正在执行的调用
+     */
+    private final boolean interruptible;
+
+    /**
+     * 正在执行的调用，每个调用一个槽位，保存执行它的线程，正在被中断时为 INTERRUPTING
+     */
+    private final Set<AtomicReference<Object>> runners = ConcurrentHashMap.newKeySet();
+
+    NodeAttempts(ExecutionContext context, int index, IWorker<Object, Object> worker, Object param,
+                 RetryPolicy retryPolicy, HedgePolicy hedgePolicy) {
+        this.context = context;
+        this.index = index;
+        this.worker = worker;
+        this.param = param;
+        this.blocking = context.getPlan().getNode(index).isBlocking();
+        this.interruptible = context.getPlan().getNode(index).isInterruptible();
+        this.retryPolicy = retryPolicy;
+        this.hedgePolicy = hedgePolicy;
+        this.timer = context.engine().getTimer();
+        this.clock = context.engine().getClock();
+    }
+
+    /**
+     * 所有调用结束后完成，结果为第一个成功的调用的结果，或者最后一次失败的异常
+     */
+    CompletableFuture<Object> getFuture() {
+        return future;
+    }
+
+    /**
+     * 在当前线程开始第一轮
+     */
+    void start() {
+        round(1);
+    }
+
+    private void round(int round) {
+        if (!isActive()) {
+            future.completeExceptionally(new CancellationException());
+            return;
+        }
+        running.set(1);
+        hedges.set(0);
+        if (hedgePolicy != null) {
+            scheduleHedge(round);
+        }
+        attempt(round);
+    }
+
+    private void scheduleHedge(int round) {
+        hedgeTask = timer.newTimeout(() -> {
+            //本轮已经结束或者有了结果时不再对冲
+            if (future.isDone() || !isActive() || !incrementIfRunning()) {
+                return;
+            }
+            if (hedges.incrementAndGet() < hedgePolicy.getMaxHedges()) {
+                scheduleHedge(round);
+            }
+            dispatch(() -> attempt(round));
+        }, hedgePolicy.delayNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private boolean incrementIfRunning() {
+        int current;
+        do {
+            current = running.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!running.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void attempt(int round) {
+        long begin = clock.nanoTime();
+        Thread thread = Thread.currentThread();
+        AtomicReference<Object> runner = interruptible ? new AtomicReference<>(thread) : null;
+        if (runner != null) {
+            runners.add(runner);
+        }
+        Object value;
+        try {
+            if (!isActive()) {
+                throw new CancellationException();
+            }
+            value = blocking ? WorkStealingExecutor.block(() -> worker.action(param, context)) : worker.action(param, context);
+        } catch (Throwable e) {
+            leave(runner, thread);
+            failed(round, e);
+            return;
+        }
+        leave(runner, thread);
+        if (hedgePolicy != null) {
+            hedgePolicy.record(clock.nanoTime() - begin);
+        }
+        if (future.complete(value)) {
+            cancelHedge();
+            //其余还在执行的调用的结果不会再被使用
+            interruptAll();
+        }
+    }
+
+    /**
+     * 中断所有正在执行的调用，节点被超时或停止结束时由 {@link ExecutionContext} 调用
+     */
+    void interruptAll() {
+        for (AtomicReference<Object> runner : runners) {
+            Object thread = runner.get();
+            if (thread instanceof Thread && runner.compareAndSet(thread, INTERRUPTING)) {
+                ((Thread) thread).interrupt();
+                runner.set(null);
+            }
+        }
+    }
+
+    /**
+     * 调用结束后移除自己的槽位。如果此时恰好有人在中断自己，等中断发出后清掉中断标记，
+     * 避免中断落到这个线程之后执行的其他任务上
+     */
+    private void leave(AtomicReference<Object> runner, Thread thread) {
+        if (runner == null) {
+            return;
+        }
+        runners.remove(runner);
+        if (runner.compareAndSet(thread, null)) {
+            return;
+        }
+        while (runner.get() == INTERRUPTING) {
+            Thread.yield();
+        }
+        Thread.interrupted();
+    }
+
+    private void failed(int round, Throwable e) {
+        //本轮还有调用在执行，等它们的结果
+        if (running.decrementAndGet() > 0 || future.isDone()) {
+            return;
+        }
+        cancelHedge();
+        if (retryPolicy != null && retryPolicy.shouldRetry(round, e) && isActive()) {
+            long backoff = retryPolicy.backoff(round);
+            //剩余时间不够等到下一轮时不再重试
+            if (TimeUnit.MILLISECONDS.toNanos(backoff) < context.remainNanos()) {
+                timer.newTimeout(() -> dispatch(() -> round(round + 1)), backoff, TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+        future.completeExceptionally(e);
+    }
+
+    private void cancelHedge() {
+        HashedWheelTimer.Timeout task = hedgeTask;
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    private boolean isActive() {
+        return context.getState(index) == WorkerStatusEnum.WORKING.getValue() && !context.isCancelled();
+    }
+
+    private void dispatch(Runnable task) {
+        ExecutorService executor = context.targetOf(index);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+}
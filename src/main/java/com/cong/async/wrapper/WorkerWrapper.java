@@ -1,28 +1,41 @@
 package com.cong.async.wrapper;
 
+import com.cong.async.cache.SingleFlight;
+import com.cong.async.cache.WorkerCache;
 import com.cong.async.callback.DefaultCallback;
+import com.cong.async.callback.IBatchWorker;
 import com.cong.async.callback.ICallback;
+import com.cong.async.callback.IContextWorker;
 import com.cong.async.callback.IWorker;
-import com.cong.async.exception.SkippedException;
-import com.cong.async.executor.time.SystemClock;
+import com.cong.async.executor.PoolTag;
+import com.cong.async.limit.ConcurrencyLimit;
+import com.cong.async.limit.ConcurrencyLimiter;
+import com.cong.async.policy.CircuitBreaker;
+import com.cong.async.policy.HedgePolicy;
+import com.cong.async.policy.RetryPolicy;
 import com.cong.async.worker.DependWrapper;
-import com.cong.async.worker.ResultState;
+import com.cong.async.worker.ResultKey;
 import com.cong.async.worker.WorkResult;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 工作器包装器(对每个worker及callback进行包装，一对一)
+ * <p>
+ * wrapper 之间按引用比较，不重写 equals 和 hashCode
  *
  * @author cong
  * @date 2024/04/28
  */
 public class WorkerWrapper<T, V> {
 
+    /**
+     * 没有指定 id 时生成 id 的序号
+     */
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+
     /**
      * 该wrapper的唯一标识
      */
@@ -32,6 +45,11 @@ public class WorkerWrapper<T, V> {
      */
     private T param;
 
+    /**
+     * 读取本 wrapper 结果的句柄
+     */
+    private final ResultKey<V> resultKey;
+
     /**
      * 执行
      */
@@ -42,6 +60,61 @@ public class WorkerWrapper<T, V> {
      */
     private final ICallback<T, V> callback;
 
+    /**
+     * 执行自己的线程池，为空时使用本次执行的线程池
+     */
+    private ExecutorService executorService;
+
+    /**
+     * 自己运行在哪一类线程池上，没有指定线程池时生效，为空时使用本次执行的线程池
+     */
+    private PoolTag poolTag;
+
+    /**
+     * 自己的超时毫秒数，从开始执行时计算，到期后以 TIMEOUT 和默认值结束；0 表示只受整组超时限制
+     */
+    private long timeout;
+
+    /**
+     * 被停止或超时时，是否中断正在执行自己的线程
+     */
+    private boolean interruptible = true;
+
+    /**
+     * 执行时是否会阻塞线程，如 rpc、数据库调用
+     */
+    private boolean blocking;
+
+    /**
+     * 结果缓存，为空时不缓存
+     */
+    private WorkerCache<T, V> cache;
+
+    /**
+     * 合并并发的相同调用，为空时不合并
+     */
+    private SingleFlight<T, V> singleFlight;
+
+    /**
+     * 失败后的重试策略，为空时不重试
+     */
+    private RetryPolicy retryPolicy;
+
+    /**
+     * 对冲请求策略，为空时不对冲
+     */
+    private HedgePolicy hedgePolicy;
+
+    /**
+     * 并发限制，为空时使用 worker 类上标注的限制
+     */
+    private ConcurrencyLimiter limiter;
+
+    /**
+     * 熔断器，为空时使用 worker 类上标注的熔断器
+     */
+    private CircuitBreaker circuitBreaker;
+
     /**
      * 在自己后面的wrapper，如果没有，自己就是末尾；如果有一个，就是串行；如果有多个，有几个就需要开几个线程</p>
      * -------2
@@ -62,20 +135,22 @@ public class WorkerWrapper<T, V> {
     private List<DependWrapper> dependWrappers;
 
     /**
-     * 标记该事件是否已经被处理过了，譬如已经超时返回false了，后续rpc又收到返回值了，则不再二次回调
-     * 经试验,volatile并不能保证"同一毫秒"内,多线程对该值的修改和拉取
-     * <p>
-     * 1-finish, 2-error, 3-working
+     * 最近一次把结果写回到本 wrapper 的执行，执行状态保存在其中，用于总控超时时停止自己
+     */
+    private volatile ExecutionContext context;
+
+    /**
+     * 以自己为起点编译的执行计划，第一次调用 {@link #work} 时创建
      */
-    private final AtomicInteger state = new AtomicInteger(0);
+    private volatile GraphPlan plan;
 
     /**
-     * 该map存放所有wrapper的id和wrapper映射
+     * 本 wrapper 在该次执行中的编号
      */
-    private Map<String, WorkerWrapper> forParamUseWrappers;
+    private int contextIndex;
 
     /**
-     * 也是个钩子变量，用来存临时的结果
+     * 也是个钩子变量，用来存临时的结果。只执行一次的用法中，执行结果会直接写到这个对象上
      */
     private volatile WorkResult<V> workResult = WorkResult.defaultResult();
 
@@ -85,13 +160,14 @@ public class WorkerWrapper<T, V> {
      */
     private volatile boolean needCheckNextWrapperResult = true;
 
-    private WorkerWrapper(String id, IWorker<T, V> worker, T param, ICallback<T, V> callback) {
+    private WorkerWrapper(ResultKey<V> resultKey, IWorker<T, V> worker, T param, ICallback<T, V> callback) {
         if (worker == null) {
             throw new NullPointerException("async.worker is null");
         }
         this.worker = worker;
         this.param = param;
-        this.id = id;
+        this.id = resultKey.getId();
+        this.resultKey = resultKey;
         //允许不设置回调
         if (callback == null) {
             callback = new DefaultCallback<>();
@@ -100,72 +176,24 @@ public class WorkerWrapper<T, V> {
     }
 
     /**
-     * 开始工作(主要实现)
-     * fromWrapper代表这次work是由哪个上游wrapper发起的
+     * 以自己为起点开始工作，在当前线程执行自己，下游由各自的上游结束时推进，不会在这里等待它们
      */
-    private void work(ExecutorService executorService, WorkerWrapper fromWrapper, long remainTime, Map<String, WorkerWrapper> forParamUseWrappers) {
-        this.forParamUseWrappers = forParamUseWrappers;
-        //将自己放到所有wrapper的集合里去
-        forParamUseWrappers.put(id, this);
-        //获取当前时间
-        long now = SystemClock.now();
-        //总的已经超时了，就快速失败，进行下一个
-        if (remainTime <= 0) {
-            fastFail(WorkerStatusEnum.INIT.getValue(), null);
-            beginNext(executorService, now, remainTime);
-            return;
-        }
-        //如果自己已经执行过了。
-        //可能有多个依赖，其中的一个依赖已经执行完了，并且自己也已开始执行或执行完毕。当另一个依赖执行完毕，又进来该方法时，就不重复处理了
-        if (getState() == WorkerStatusEnum.FINISH.getValue() || getState() == WorkerStatusEnum.ERROR.getValue()) {
-            beginNext(executorService, now, remainTime);
-            return;
-        }
-        //如果在执行前需要校验nextWrapper的状态
-        if (needCheckNextWrapperResult) {
-            //如果自己的next链上有已经出结果或已经开始执行的任务了，自己就不用继续了
-            if (!checkNextWrapperResult()) {
-                fastFail(WorkerStatusEnum.INIT.getValue(), new SkippedException());
-                beginNext(executorService, now, remainTime);
-                return;
-            }
-        }
-
-        //如果没有任何依赖，说明自己就是第一批要执行的
-        if (dependWrappers == null || dependWrappers.isEmpty()) {
-            //执行自己的job
-            fire();
-            beginNext(executorService, now, remainTime);
-            return;
-        }
-
-        /*如果有前方依赖，存在两种情况
-         一种是前面只有一个wrapper。即 A  ->  B
-        一种是前面有多个wrapper。A C D ->   B。需要A、C、D都完成了才能轮到B。但是无论是A执行完，还是C执行完，都会去唤醒B。
-        所以需要B来做判断，必须A、C、D都完成，自己才能执行 */
-
-        //只有一个依赖
-        if (dependWrappers.size() == 1) {
-            doDependsOneJob(fromWrapper);
-            beginNext(executorService, now, remainTime);
-        } else {
-            //有多个依赖，需要等待所有依赖都完成
-            doDependsMoreJob(executorService, dependWrappers, fromWrapper, now, remainTime);
-        }
-    }
-
-
     public void work(ExecutorService executorService, long remainTime, Map<String, WorkerWrapper> forParamUseWrappers) {
-        work(executorService, null, remainTime, forParamUseWrappers);
+        GraphPlan plan = this.plan;
+        if (plan == null) {
+            plan = GraphPlan.of(this);
+            this.plan = plan;
+        }
+        ExecutionContext.bind(plan, executorService, remainTime, forParamUseWrappers).work(plan.indexOf(this), -1, executorService);
     }
 
     private void addNext(WorkerWrapper<?, ?> workerWrapper) {
         if (nextWrappers == null) {
             nextWrappers = new ArrayList<>();
         }
-        //避免添加重复
+        //避免添加重复，wrapper 按引用比较
         for (WorkerWrapper wrapper : nextWrappers) {
-            if (workerWrapper.equals(wrapper)) {
+            if (workerWrapper == wrapper) {
                 return;
             }
         }
@@ -190,40 +218,72 @@ public class WorkerWrapper<T, V> {
         }
     }
     /**
-     * 进行下一个任务
+     * 自己指定的线程池，为空时使用本次执行的线程池
      */
-    private void beginNext(ExecutorService executorService, long now, long remainTime) {
-        //如果有下一个wrapper，就开始执行
-        if (nextWrappers == null || nextWrappers.isEmpty()) {
-            return;
-        }
-        //花费的时间
-        long costTime = SystemClock.now() - now;
-        //只有一个wrapper，就直接开始执行然后结束掉
-        if (nextWrappers.size() == 1) {
-            nextWrappers.get(0).work(executorService, this, remainTime - costTime, forParamUseWrappers);
-            return;
-        }
-        //有多个wrapper,就开始异步执行
-        CompletableFuture[] futures = new CompletableFuture[nextWrappers.size()];
-        for (int i = 0; i < nextWrappers.size(); i++) {
-            int finalI = i;
-            futures[i] = CompletableFuture.runAsync(() ->
-                    nextWrappers.get(finalI).work(executorService, this, remainTime, forParamUseWrappers));
-        }
-        try {
-            CompletableFuture.allOf(futures).get(remainTime - costTime, TimeUnit.MILLISECONDS);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    public ExecutorService getExecutorService() {
+        return executorService;
     }
 
-    public List<WorkerWrapper<?, ?>> getNextWrappers() {
-        return nextWrappers;
+    /**
+     * 自己运行在哪一类线程池上
+     */
+    public PoolTag getPoolTag() {
+        return poolTag;
+    }
+
+    /**
+     * 自己的超时毫秒数，0 表示不单独限制
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 被停止或超时时，是否中断正在执行自己的线程
+     */
+    public boolean isInterruptible() {
+        return interruptible;
+    }
+
+    /**
+     * 执行时是否会阻塞线程，{@link PoolTag#IO} 的 wrapper 也视为会阻塞
+     */
+    public boolean isBlocking() {
+        return blocking || poolTag == PoolTag.IO;
+    }
+
+    /**
+     * 结果缓存，没有开启时返回 null
+     */
+    public WorkerCache<T, V> getCache() {
+        return cache;
+    }
+
+    /**
+     * 合并并发相同调用的 SingleFlight，没有开启时返回 null
+     */
+    public SingleFlight<T, V> getSingleFlight() {
+        return singleFlight;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
     }
 
-    private int getState() {
-        return state.get();
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public List<WorkerWrapper<?, ?>> getNextWrappers() {
+        return nextWrappers;
     }
 
     public void setParam(T param) {
@@ -241,271 +301,82 @@ public class WorkerWrapper<T, V> {
         if (dependWrappers == null) {
             dependWrappers = new ArrayList<>();
         }
-        //如果依赖的是重复的同一个，就不重复添加了
+        //如果依赖的是重复的同一个，就不重复添加了，只要有一次是必须的就算必须
         for (DependWrapper wrapper : dependWrappers) {
-            if (wrapper.equals(dependWrapper)) {
+            if (wrapper.getDepWrapper() == dependWrapper.getDepWrapper()) {
+                wrapper.setMust(wrapper.isMust() || dependWrapper.isMust());
                 return;
             }
         }
         dependWrappers.add(dependWrapper);
     }
 
-    /**
-     * 判断自己下游链路上，是否存在已经出结果的或已经开始执行的
-     * 如果没有返回true，如果有返回false
-     */
-    private boolean checkNextWrapperResult() {
-        //如果自己就是最后一个，或者后面有并行的多个，就返回true
-        if (nextWrappers == null || nextWrappers.size() != 1) {
-            return getState() == WorkerStatusEnum.INIT.getValue();
-        }
-        WorkerWrapper<?, ?> nextWrapper = nextWrappers.get(0);
-        //继续校验自己的next的状态
-        return nextWrapper.getState() == WorkerStatusEnum.INIT.getValue() && nextWrapper.checkNextWrapperResult();
-    }
-
     /**
      * 总控制台超时，停止所有任务
      */
     public void stopNow() {
-        if (getState() == WorkerStatusEnum.INIT.getValue() || getState() == WorkerStatusEnum.WORKING.getValue()) {
-            fastFail(getState(), null);
+        ExecutionContext current = context;
+        if (current != null) {
+            current.stopNow(contextIndex);
         }
     }
 
     /**
-     * 执行自己的job.具体地执行是在另一个线程里,但判断阻塞超时是在work线程
-     */
-    private void fire() {
-        //阻塞取结果
-        workResult = workerDoJob();
-    }
-
-    /**
-     * 具体的单个 worker 执行任务
+     * 记录本 wrapper 结果所绑定的那次执行
      */
-    private WorkResult<V> workerDoJob() {
-        //避免重复执行
-        if (!checkIsNullResult()) {
-            return workResult;
-        }
-        try {
-            //判断 worker 是否已经在执行中。保证任务不被重复执行
-            if (cASState(WorkerStatusEnum.INIT.getValue()
-                    , WorkerStatusEnum.WORKING.getValue())) {
-                return workResult;
-            }
-            //执行任务触发监听
-            callback.begin();
-
-            //执行任务(action 交由 worker 实现)
-            V resultValue = worker.action(param, forParamUseWrappers);
-
-            //修改任务状态，从working到finish。如果状态不是在working,说明别的地方已经修改了
-            if (cASState(WorkerStatusEnum.WORKING.getValue()
-                    , WorkerStatusEnum.FINISH.getValue())) {
-                return workResult;
-            }
-
-            //设置结果
-            workResult.setResultState(ResultState.SUCCESS);
-            workResult.setResult(resultValue);
-            //回调成功
-            callback.result(true, param, workResult);
-
-            return workResult;
-        } catch (Exception e) {
-            //避免重复回调
-            if (!checkIsNullResult()) {
-                return workResult;
-            }
-            fastFail(WorkerStatusEnum.WORKING.getValue(), e);
-            return workResult;
-        }
+    void bind(ExecutionContext context, int index) {
+        this.contextIndex = index;
+        this.context = context;
     }
 
-    private void doDependsOneJob(WorkerWrapper dependWrapper) {
-        //超时 快速失败
-        if (ResultState.TIMEOUT == dependWrapper.getWorkResult().getResultState()) {
-            workResult = defaultResult();
-            fastFail(WorkerStatusEnum.INIT.getValue(), null);
-        } else if (ResultState.EXCEPTION == dependWrapper.getWorkResult().getResultState()) {
-            workResult = defaultExResult(dependWrapper.getWorkResult().getEx());
-            fastFail(WorkerStatusEnum.INIT.getValue(), null);
-        } else {
-            //如果依赖任务正常，自己开始执行
-            fire();
-        }
-    }
-
-    private void doDependsMoreJob(ExecutorService executorService, List<DependWrapper> dependWrappers, WorkerWrapper fromWrapper, long now, long remainTime) {
-        //如果当前任务已经完成了，依赖的其他任务拿到锁再进来时，不需要执行下面的逻辑了。
-        if (getState() != WorkerStatusEnum.INIT.getValue()) {
-            return;
-        }
-        boolean nowDependIsMust = false;
-        //创建必须完成的上游 wrapper 集合
-        Set<DependWrapper> mustWrapper = new HashSet<>();
-
-        //遍历依赖项
-        for (DependWrapper dependWrapper : dependWrappers) {
-            if (dependWrapper.isMust()) {
-                mustWrapper.add(dependWrapper);
-            }
-            if (dependWrapper.getDepWrapper().equals(fromWrapper)) {
-                nowDependIsMust = dependWrapper.isMust();
-            }
-        }
-        //如果都是不必须的条件，则自己开始执行
-        if (mustWrapper.isEmpty()) {
-            if (ResultState.TIMEOUT == fromWrapper.getWorkResult().getResultState()) {
-                fastFail(WorkerStatusEnum.INIT.getValue(), null);
-            } else {
-                fire();
-            }
-            beginNext(executorService, now, remainTime);
-            return;
-        }
-
-        //如果存在需要必须完成的，且fromWrapper不是必须的，就什么也不干
-        if (!nowDependIsMust) {
-            return;
-        }
-
-        //如果fromWrapper是必须的
-        boolean existNoFinish = false;
-        boolean hasError = false;
-
-        //先判断前面必须要执行的依赖任务的执行结果，如果有任何一个失败，那就不用走action了，直接给自己设置为失败，进行下一步就是了
-        checkExecResult(executorService, now, remainTime, mustWrapper, existNoFinish, hasError);
-    }
-
-    private void checkExecResult(ExecutorService executorService, long now, long remainTime, Set<DependWrapper> mustWrapper, boolean existNoFinish, boolean hasError) {
-        for (DependWrapper dependWrapper : mustWrapper) {
-            WorkerWrapper<?, ?> depWrapper = dependWrapper.getDepWrapper();
-            WorkResult<?> tempWorkResult = depWrapper.getWorkResult();
-
-            //如果为 init 和 working 则说明还没执行完
-            if (depWrapper.getState() == WorkerStatusEnum.INIT.getValue() || depWrapper.getState() == WorkerStatusEnum.WORKING.getValue()) {
-                existNoFinish = true;    //存在还没执行完的依赖任务
-                break;
-            }
-            //如果是超时设置默认结果
-            if (ResultState.TIMEOUT == tempWorkResult.getResultState()) {
-                workResult = defaultResult();
-                hasError = true;    //存在执行失败的依赖任务
-                break;
-            }
-            //如果为 error 则说明执行失败了
-            if (depWrapper.getState() == WorkerStatusEnum.ERROR.getValue()) {
-                workResult = defaultExResult(depWrapper.getWorkResult().getEx());
-                hasError = true;    //存在执行失败的依赖任务
-                break;
-            }
-        }
-        //存在失败的
-        if (hasError) {
-            fastFail(WorkerStatusEnum.INIT.getValue(), null);
-            beginNext(executorService, now, remainTime);
-            return;
-        }
-
-        //如果上游都没有失败，分为两种情况，一种是都finish了，一种是有的在working
-        //都finish的话
-        if (!existNoFinish) {
-            //上游都finish了，进行自己
-            fire();
-            beginNext(executorService, now, remainTime);
-        }
+    public WorkResult<V> getWorkResult() {
+        return workResult;
     }
 
-    private void fastFail(int expect, Exception e) {
-        //试图将它从expect状态,改成Error
-        if (cASState(expect, WorkerStatusEnum.ERROR.getValue())) {
-            return;
-        }
-
-        //尚未处理过结果
-        if (checkIsNullResult()) {
-            if (e == null) {
-                workResult = defaultResult();
-            } else {
-                workResult = defaultExResult(e);
-            }
-        }
-
-        callback.result(false, param, workResult);
+    public String getId() {
+        return id;
     }
 
     /**
-     * 检查结果为空
-     *
-     * @return boolean
+     * 读取本 wrapper 结果的句柄，在 worker 中通过 {@link com.cong.async.worker.WorkerContext#getResult(ResultKey)} 使用
      */
-    private boolean checkIsNullResult() {
-        return ResultState.DEFAULT == workResult.getResultState();
+    public ResultKey<V> getResultKey() {
+        return resultKey;
     }
 
-    /**
-     * 比较和设置状态
-     *
-     * @param expect 期望
-     * @param update 更新
-     * @return boolean
-     */
-    private boolean cASState(int expect, int update) {
-        return !this.state.compareAndSet(expect, update);
+    public T getParam() {
+        return param;
     }
 
-    private WorkResult<V> defaultResult() {
-        workResult.setResultState(ResultState.TIMEOUT);
-        workResult.setResult(worker.defaultValue());
-        return workResult;
+    IWorker<T, V> getWorker() {
+        return worker;
     }
 
-    private WorkResult<V> defaultExResult(Exception ex) {
-        workResult.setResultState(ResultState.EXCEPTION);
-        workResult.setResult(worker.defaultValue());
-        workResult.setEx(ex);
-        return workResult;
+    ICallback<T, V> getCallback() {
+        return callback;
     }
 
-    public WorkResult<V> getWorkResult() {
-        return workResult;
+    List<DependWrapper> getDependWrappers() {
+        return dependWrappers;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o)  {
-            return true;
-        }
-        if (o == null || getClass() != o.getClass()) {
-            return false;
-        }
-        WorkerWrapper<?, ?> that = (WorkerWrapper<?, ?>) o;
-        return needCheckNextWrapperResult == that.needCheckNextWrapperResult &&
-                Objects.equals(param, that.param) &&
-                Objects.equals(worker, that.worker) &&
-                Objects.equals(callback, that.callback) &&
-                Objects.equals(nextWrappers, that.nextWrappers) &&
-                Objects.equals(dependWrappers, that.dependWrappers) &&
-                Objects.equals(state, that.state) &&
-                Objects.equals(workResult, that.workResult);
-    }
-    @Override
-    public int hashCode() {
-        return Objects.hash(param, worker, callback, nextWrappers, dependWrappers, state, workResult, needCheckNextWrapperResult);
+    boolean isNeedCheckNextWrapperResult() {
+        return needCheckNextWrapperResult;
     }
 
     public static class Builder<W,C>{
         /**
-         * 该wrapper的唯一标识
+         * 该wrapper的唯一标识，不指定时 build 时按顺序生成
          */
-        private String id = UUID.randomUUID().toString();
+        private String id;
         /**
          * worker将来要处理的param
          */
         private W param;
+        /**
+         * 读取结果的句柄，设置后 id 使用句柄的 id
+         */
+        private ResultKey<C> resultKey;
         private IWorker<W, C> worker;
         private ICallback<W, C> callback;
         /**
@@ -517,16 +388,55 @@ public class WorkerWrapper<T, V> {
          */
         private List<DependWrapper> dependWrappers;
         /**
-         * 存储强依赖于自己的wrapper集合
+         * 与 nextWrappers 一一对应，该下游是否强依赖于自己
          */
-        private Set<WorkerWrapper<?, ?>> selfIsMustSet;
+        private List<Boolean> selfIsMustList;
 
         private boolean needCheckNextWrapperResult = true;
+        /**
+         * 执行自己的线程池
+         */
+        private ExecutorService executorService;
+        /**
+         * 运行在哪一类线程池上
+         */
+        private PoolTag poolTag;
+        /**
+         * 自己的超时毫秒数
+         */
+        private long timeout;
+        /**
+         * 被停止或超时时是否中断执行线程
+         */
+        private boolean interruptible = true;
+        /**
+         * 执行时是否会阻塞线程
+         */
+        private boolean blocking;
+        /**
+         * 结果缓存
+         */
+        private WorkerCache<W, C> cache;
+        /**
+         * 合并并发的相同调用
+         */
+        private SingleFlight<W, C> singleFlight;
+        private RetryPolicy retryPolicy;
+        private HedgePolicy hedgePolicy;
+        private ConcurrencyLimiter limiter;
+        private CircuitBreaker circuitBreaker;
 
         public Builder<W,C> worker(IWorker<W, C> worker) {
             this.worker = worker;
             return this;
         }
+        /**
+         * 使用基于上下文的 worker，可以通过 ResultKey 读取上游结果
+         */
+        public Builder<W, C> contextWorker(IContextWorker<W, C> worker) {
+            this.worker = worker;
+            return this;
+        }
         public Builder<W, C> param(W w) {
             this.param = w;
             return this;
@@ -538,7 +448,104 @@ public class WorkerWrapper<T, V> {
         public Builder<W, C> id(String id) {
             if (id != null) {
                 this.id = id;
+                this.resultKey = null;
+            }
+            return this;
+        }
+        /**
+         * 指定读取自己结果的句柄，wrapper 的 id 即为句柄的 id
+         */
+        public Builder<W, C> resultKey(ResultKey<C> resultKey) {
+            if (resultKey != null) {
+                this.resultKey = resultKey;
+                this.id = resultKey.getId();
+            }
+            return this;
+        }
+        /**
+         * 指定执行自己的线程池，不指定时使用 Async.start 传入的线程池
+         */
+        public Builder<W, C> executor(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+        /**
+         * 指定自己运行在哪一类线程池上，如 rpc 用 IO，计算用 CPU，很轻的转换用 INLINE。
+         * 同时指定了 {@link #executor(ExecutorService)} 时以线程池为准
+         */
+        public Builder<W, C> pool(PoolTag poolTag) {
+            this.poolTag = poolTag;
+            return this;
+        }
+        /**
+         * 指定自己的超时毫秒数，从开始执行时计算。到期后自己以 TIMEOUT 结束，结果为 worker 的默认值，下游照常推进，
+         * 不需要任何线程等待
+         */
+        public Builder<W, C> timeout(long timeout) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("timeout must not be negative");
             }
+            this.timeout = timeout;
+            return this;
+        }
+        /**
+         * 被停止或超时时是否中断正在执行自己的线程，默认中断。
+         * worker 中使用了会因中断而关闭的资源(如 NIO 的 InterruptibleChannel)时可以关掉，只依靠 {@link com.cong.async.worker.WorkerContext#isCancelled()}
+         */
+        public Builder<W, C> interruptible(boolean interruptible) {
+            this.interruptible = interruptible;
+            return this;
+        }
+        /**
+         * 标记自己执行时会阻塞线程。运行在 {@link com.cong.async.executor.WorkStealingExecutor} 上时，
+         * 阻塞期间线程池会临时补充线程，不会因为阻塞的节点占满线程而让其他节点饿死
+         */
+        public Builder<W, C> blocking() {
+            this.blocking = true;
+            return this;
+        }
+        /**
+         * 开启结果缓存。命中时自己直接以 SUCCESS 结束，不执行 action，也不派发到线程池；只有成功的结果会被缓存
+         */
+        public Builder<W, C> cache(WorkerCache<W, C> cache) {
+            this.cache = cache;
+            return this;
+        }
+        /**
+         * 合并并发的相同调用：key 相同的节点同一时刻只有一个执行 action，其余的不占用线程，共享它的结果。
+         * 同一个 SingleFlight 需要在所有执行中共享才有效果
+         */
+        public Builder<W, C> singleFlight(SingleFlight<W, C> singleFlight) {
+            this.singleFlight = singleFlight;
+            return this;
+        }
+        /**
+         * 失败后按策略重试，退避期间不占用线程，剩余时间不够时不再重试
+         */
+        public Builder<W, C> retry(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+        /**
+         * 执行超过对冲延迟还没结束时再发起一次调用，以先结束的为准。action 需要是幂等的
+         */
+        public Builder<W, C> hedge(HedgePolicy hedgePolicy) {
+            this.hedgePolicy = hedgePolicy;
+            return this;
+        }
+        /**
+         * 并发限制，同一个限制器可以给多个 wrapper 共用。超过上限的节点排队时不占用线程，
+         * 排队时间只受整组超时限制；队列满了时以 REJECTED 和默认值结束
+         */
+        public Builder<W, C> limiter(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+            return this;
+        }
+        /**
+         * 熔断器，同一个熔断器可以给多个 wrapper 共用。打开时节点不派发到线程池，直接以 REJECTED 和默认值结束
+         */
+        public Builder<W, C> circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
             return this;
         }
         public Builder<W, C> needCheckNextWrapperResult(boolean needCheckNextWrapperResult) {
@@ -575,16 +582,11 @@ public class WorkerWrapper<T, V> {
         public Builder<W, C> next(WorkerWrapper<?, ?> wrapper, boolean selfIsMust) {
             if (nextWrappers == null) {
                 nextWrappers = new ArrayList<>();
+                selfIsMustList = new ArrayList<>();
             }
             nextWrappers.add(wrapper);
-
-            //强依赖自己
-            if (selfIsMust) {
-                if (selfIsMustSet == null) {
-                    selfIsMustSet = new HashSet<>();
-                }
-                selfIsMustSet.add(wrapper);
-            }
+            //是否强依赖自己
+            selfIsMustList.add(selfIsMust);
             return this;
         }
 
@@ -597,9 +599,32 @@ public class WorkerWrapper<T, V> {
             }
             return this;
         }
+        /**
+         * @throws IllegalStateException {@link IBatchWorker} 的节点同时设置了合并、重试、对冲或者并发限制。
+         *                               批量节点的调用由 {@link com.cong.async.batch.BatchLoader} 合并发出，这些设置对它不起作用
+         */
         public WorkerWrapper<W, C> build() {
-            WorkerWrapper<W, C> wrapper = new WorkerWrapper<>(id, worker, param, callback);
+            if (worker instanceof IBatchWorker && (singleFlight != null || retryPolicy != null || hedgePolicy != null
+                    || limiter != null || worker.getClass().isAnnotationPresent(ConcurrencyLimit.class))) {
+                throw new IllegalStateException("batch worker does not support singleFlight, retry, hedge or concurrency limit");
+            }
+            ResultKey<C> key = resultKey;
+            if (key == null) {
+                key = ResultKey.of(id != null ? id : "wrapper-" + ID_SEQUENCE.incrementAndGet());
+            }
+            WorkerWrapper<W, C> wrapper = new WorkerWrapper<>(key, worker, param, callback);
             wrapper.setNeedCheckNextWrapperResult(needCheckNextWrapperResult);
+            wrapper.executorService = executorService;
+            wrapper.poolTag = poolTag;
+            wrapper.timeout = timeout;
+            wrapper.interruptible = interruptible;
+            wrapper.blocking = blocking;
+            wrapper.cache = cache;
+            wrapper.singleFlight = singleFlight;
+            wrapper.retryPolicy = retryPolicy;
+            wrapper.hedgePolicy = hedgePolicy;
+            wrapper.limiter = limiter;
+            wrapper.circuitBreaker = circuitBreaker;
             if (dependWrappers != null) {
                 for (DependWrapper workerWrapper : dependWrappers) {
                     workerWrapper.getDepWrapper().addNext(wrapper);
@@ -607,12 +632,9 @@ public class WorkerWrapper<T, V> {
                 }
             }
             if (nextWrappers != null) {
-                for (WorkerWrapper<?, ?> workerWrapper : nextWrappers) {
-                    boolean must = false;
-                    if (selfIsMustSet != null && selfIsMustSet.contains(workerWrapper)) {
-                        must = true;
-                    }
-                    workerWrapper.addDepend(wrapper, must);
+                for (int i = 0; i < nextWrappers.size(); i++) {
+                    WorkerWrapper<?, ?> workerWrapper = nextWrappers.get(i);
+                    workerWrapper.addDepend(wrapper, selfIsMustList.get(i));
                     wrapper.addNext(workerWrapper);
                 }
             }
@@ -0,0 +1,33 @@
+package com.cong.async.executor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程支持，Java 21 及以上的实现
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+
+    }
+
+    /**
+     * 当前运行环境是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * 每个任务一个虚拟线程的线程池，阻塞在 rpc、jdbc 上的 worker 只占用很少的内存，不会占住平台线程
+     *
+     * @param name 线程名前缀
+     */
+    public static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + " Virtual-", 1).factory());
+    }
+}
@@ -0,0 +1,63 @@
+package batch;
+
+
+import com.cong.async.callback.IBatchWorker;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.policy.RetryPolicy;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 并发执行的多个图中的批量节点合并成一次 batchAction
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class BatchTest {
+    public static void main(String[] args) throws Exception {
+        IBatchWorker<Integer, String> userWorker = keys -> {
+            System.out.println(Thread.currentThread().getName() + " batchAction " + keys);
+            List<String> users = new ArrayList<>();
+            for (Integer id : keys) {
+                users.add("user-" + id);
+            }
+            return users;
+        };
+
+        WorkerWrapper<Integer, String> user = new WorkerWrapper.Builder<Integer, String>()
+                .worker(userWorker)
+                .id("user")
+                .build();
+
+        AsyncEngine engine = AsyncEngine.builder().name("batch").build();
+        GraphPlan plan = GraphPlan.of(user);
+        List<CompletableFuture<GraphResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ExecutionContext context = new ExecutionContext(plan, engine.getExecutorService(), 1000);
+            context.setParam(plan.indexOf("user"), i % 5);
+            futures.add(engine.startAsync(context));
+        }
+        for (CompletableFuture<GraphResult> future : futures) {
+            System.out.println(future.get().getWorkResult("user"));
+        }
+        System.out.println(engine.getBatchLoader(userWorker));
+
+        //批量节点的调用由 BatchLoader 合并发出，重试、对冲、合并和并发限制对它不起作用，构建时直接拒绝
+        try {
+            new WorkerWrapper.Builder<Integer, String>()
+                    .worker(userWorker)
+                    .retry(RetryPolicy.builder().build())
+                    .id("retried")
+                    .build();
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+        engine.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+package cache;
+
+
+import com.cong.async.cache.SingleFlight;
+import com.cong.async.cache.WorkerCache;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 合并并发的相同调用：执行者超时后等待者重新执行，而不是拿到执行者被中断的结果；结果先进缓存再交给等待者
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class SingleFlightTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("singleFlight").build();
+        AtomicInteger loads = new AtomicInteger();
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        WorkerWrapper<String, String> load = new WorkerWrapper.Builder<String, String>()
+                .worker((String key, Map<String, WorkerWrapper> allWrappers) -> {
+                    loads.incrementAndGet();
+                    sleep(300);
+                    return "value of " + key;
+                })
+                .param("k")
+                .singleFlight(singleFlight)
+                .id("load")
+                .build();
+        GraphPlan plan = GraphPlan.of(load);
+
+        //执行者只有 50ms，等待者有 5s：执行者超时被中断后，等待者自己重新执行并成功
+        CompletableFuture<GraphResult> leader = engine.startAsync(50, engine.getExecutorService(), plan);
+        Thread.sleep(10);
+        CompletableFuture<GraphResult> follower = engine.startAsync(5000, engine.getExecutorService(), plan);
+        System.out.println("leader   " + leader.get().getWorkResult("load"));
+        System.out.println("follower " + follower.get().getWorkResult("load"));
+        System.out.println("loads=" + loads + " " + singleFlight);
+
+        //同时开启缓存：执行者结束后陆续到来的调用都命中缓存，只执行一次
+        loads.set(0);
+        WorkerCache<String, String> cache = WorkerCache.<String, String>builder()
+                .expireAfterWrite(1, TimeUnit.MINUTES)
+                .build();
+        WorkerWrapper<String, String> cached = new WorkerWrapper.Builder<String, String>()
+                .worker((String key, Map<String, WorkerWrapper> allWrappers) -> {
+                    loads.incrementAndGet();
+                    sleep(100);
+                    return "value of " + key;
+                })
+                .param("k")
+                .singleFlight(new SingleFlight<>())
+                .cache(cache)
+                .id("cached")
+                .build();
+        GraphPlan cachedPlan = GraphPlan.of(cached);
+        List<CompletableFuture<GraphResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(engine.startAsync(2000, engine.getExecutorService(), cachedPlan));
+            Thread.sleep(1);
+        }
+        int success = 0;
+        for (CompletableFuture<GraphResult> future : futures) {
+            if (future.get().isSuccess()) {
+                success++;
+            }
+        }
+        System.out.println("success=" + success + " loads=" + loads + " " + cache);
+        engine.shutdown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
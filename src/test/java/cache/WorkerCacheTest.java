@@ -0,0 +1,86 @@
+package cache;
+
+
+import com.cong.async.cache.WorkerCache;
+import com.cong.async.callback.ICallback;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.executor.time.ManualClock;
+import com.cong.async.worker.WorkResult;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 结果缓存：写入后按 TTL 过期，超过容量按 LRU 淘汰，只缓存成功的结果，命中时不执行 action
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class WorkerCacheTest {
+    public static void main(String[] args) throws Exception {
+        //TTL：用手动的时钟，到期时间精确可控
+        ManualClock clock = new ManualClock();
+        WorkerCache<String, String> ttl = WorkerCache.<String, String>builder()
+                .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+                .clock(clock)
+                .build();
+        ttl.put("k", "v");
+        clock.advance(99, TimeUnit.MILLISECONDS);
+        System.out.println("at 99ms hit=" + (ttl.lookup("k") != null));
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        System.out.println("at 100ms hit=" + (ttl.lookup("k") != null) + " size=" + ttl.size() + " " + ttl);
+
+        //LRU：容量 2，访问过的 a 保留，最久没有访问的 b 被淘汰
+        WorkerCache<String, String> lru = WorkerCache.<String, String>builder().maximumSize(2).build();
+        lru.put("a", "A");
+        lru.put("b", "B");
+        lru.lookup("a");
+        lru.put("c", "C");
+        System.out.println("a=" + lru.contains("a") + " b=" + lru.contains("b") + " c=" + lru.contains("c")
+                + " eviction=" + lru.getEvictionCount());
+
+        //keyFunction 返回 null 时不使用缓存
+        WorkerCache<String, String> keyed = WorkerCache.<String, String>builder()
+                .keyFunction(param -> param.startsWith("nocache") ? null : param.toLowerCase())
+                .build();
+        keyed.put("User", "u");
+        keyed.put("nocache-1", "x");
+        System.out.println("user=" + (keyed.lookup("USER") != null) + " nocache=" + (keyed.lookup("nocache-1") != null));
+
+        //在图中使用：命中时不执行 action，也不触发 begin，失败的结果不缓存
+        AsyncEngine engine = AsyncEngine.builder().name("cache").build();
+        WorkerCache<String, String> cache = WorkerCache.<String, String>builder().maximumSize(100).build();
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger begins = new AtomicInteger();
+        for (String param : new String[]{"1", "1", "fail", "fail", "1"}) {
+            WorkerWrapper<String, String> load = new WorkerWrapper.Builder<String, String>()
+                    .worker((String key, Map<String, WorkerWrapper> allWrappers) -> {
+                        calls.incrementAndGet();
+                        if ("fail".equals(key)) {
+                            throw new IllegalStateException("load " + key + " failed");
+                        }
+                        return "value-" + key;
+                    })
+                    .callback(new ICallback<String, String>() {
+                        @Override
+                        public void begin() {
+                            begins.incrementAndGet();
+                        }
+
+                        @Override
+                        public void result(boolean success, String param, WorkResult<String> workResult) {
+                        }
+                    })
+                    .cache(cache)
+                    .param(param)
+                    .build();
+            engine.start(1000, load);
+            System.out.println(param + " -> " + load.getWorkResult().getResultState()
+                    + " calls=" + calls.get() + " begins=" + begins.get());
+        }
+        System.out.println(cache);
+        engine.shutdown();
+    }
+}
@@ -0,0 +1,131 @@
+package cancel;
+
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.worker.WorkerContext;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 超时和 stopNow 时停止正在执行的 worker：阻塞的被中断，计算的通过 isCancelled 自己退出，
+ * 关掉中断的不会被中断，下游不再被派发，中断标记不会留在线程池的线程上
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class CancelTest {
+    public static void main(String[] args) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        AsyncEngine engine = AsyncEngine.builder().name("cancel").executor(pool).build();
+        AtomicInteger nextRuns = new AtomicInteger();
+        AtomicLong interruptedAt = new AtomicLong();
+        AtomicLong cancelledAt = new AtomicLong();
+        AtomicLong uninterruptedAt = new AtomicLong();
+        long begin = System.currentTimeMillis();
+
+        WorkerWrapper<String, String> next = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    nextRuns.incrementAndGet();
+                    return "next";
+                })
+                .id("next")
+                .build();
+        //阻塞 5s，整组超时时被中断
+        WorkerWrapper<String, String> blocking = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException e) {
+                        interruptedAt.set(System.currentTimeMillis() - begin);
+                        throw new RuntimeException(e);
+                    }
+                    return "blocking";
+                })
+                .id("blocking")
+                .next(next)
+                .build();
+        //不响应中断的计算，循环中检查 isCancelled
+        WorkerWrapper<String, Long> spin = new WorkerWrapper.Builder<String, Long>()
+                .contextWorker((String object, WorkerContext context) -> {
+                    long loops = 0;
+                    while (!context.isCancelled()) {
+                        loops++;
+                    }
+                    cancelledAt.set(System.currentTimeMillis() - begin);
+                    return loops;
+                })
+                .id("spin")
+                .build();
+        boolean success = engine.start(100, blocking, spin);
+        System.out.println("success=" + success + " cost=" + (System.currentTimeMillis() - begin) + "ms");
+        Thread.sleep(50);
+        System.out.println("blocking interrupted at " + interruptedAt.get() + "ms " + blocking.getWorkResult());
+        System.out.println("spin left at " + cancelledAt.get() + "ms " + spin.getWorkResult());
+        System.out.println("next runs=" + nextRuns.get() + " " + next.getWorkResult());
+
+        //线程池的线程上不会留下中断标记
+        CountDownLatch latch = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            pool.execute(() -> {
+                System.out.println(Thread.currentThread().getName() + " interrupted=" + Thread.currentThread().isInterrupted());
+                latch.countDown();
+            });
+        }
+        latch.await();
+
+        //关掉中断的节点睡满 300ms，stopNow 之后它的结果仍然是 TIMEOUT，不会被迟到的返回值覆盖
+        WorkerWrapper<String, String> quiet = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    long start = System.currentTimeMillis();
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    uninterruptedAt.set(System.currentTimeMillis() - start);
+                    return "quiet";
+                })
+                .interruptible(false)
+                .id("quiet")
+                .build();
+        ExecutionContext context = new ExecutionContext(GraphPlan.of(quiet), pool, 10000);
+        CompletableFuture<GraphResult> future = engine.startAsync(context);
+        Thread.sleep(50);
+        context.stopNow();
+        System.out.println("after stopNow success=" + future.get().isSuccess() + " " + context.getWorkResult(quiet.getResultKey()));
+        Thread.sleep(400);
+        System.out.println("quiet slept " + uninterruptedAt.get() + "ms without interrupt, result still "
+                + context.getWorkResult(quiet.getResultKey()));
+
+        //单线程池被不响应中断的计算占满，整组超时仍然按时完成 future，不需要等线程池空出来
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        AsyncEngine busyEngine = AsyncEngine.builder().name("busy").executor(single).build();
+        WorkerWrapper<String, String> busy = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    long start = System.currentTimeMillis();
+                    while (System.currentTimeMillis() - start < 1000) {
+                        //空转，不检查中断
+                    }
+                    return "busy";
+                })
+                .id("busy")
+                .build();
+        long busyBegin = System.currentTimeMillis();
+        GraphResult busyResult = busyEngine.startAsync(200, GraphPlan.of(busy)).get();
+        System.out.println("busy pool success=" + busyResult.isSuccess() + " cost="
+                + (System.currentTimeMillis() - busyBegin) + "ms " + busyResult.getWorkResult(busy.getResultKey()));
+        busyEngine.shutdown();
+        single.shutdown();
+        engine.shutdown();
+        pool.shutdown();
+    }
+}
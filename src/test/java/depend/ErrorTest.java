@@ -0,0 +1,49 @@
+package depend;
+
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Map;
+
+/**
+ * worker 抛出 Error、回调抛出异常时，节点照常以异常结束并推进下游，整组不会空等到超时
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ErrorTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("error").build();
+        WorkerWrapper<String, String> after = new WorkerWrapper.Builder<String, String>()
+                .worker((String object, Map<String, WorkerWrapper> allWrappers) -> "after")
+                .id("after")
+                .build();
+        //action 抛出 Error
+        WorkerWrapper<String, String> error = new WorkerWrapper.Builder<String, String>()
+                .worker((String object, Map<String, WorkerWrapper> allWrappers) -> {
+                    throw new AssertionError("broken worker");
+                })
+                .id("error")
+                .next(after)
+                .build();
+        //action 失败，失败回调又抛出异常
+        WorkerWrapper<String, String> noisy = new WorkerWrapper.Builder<String, String>()
+                .worker((String object, Map<String, WorkerWrapper> allWrappers) -> {
+                    throw new IllegalStateException("failed");
+                })
+                .callback((success, param, workResult) -> {
+                    throw new IllegalStateException("broken callback");
+                })
+                .id("noisy")
+                .next(after)
+                .build();
+        long begin = System.currentTimeMillis();
+        boolean success = engine.start(3000, error, noisy);
+        System.out.println("success=" + success + " cost=" + (System.currentTimeMillis() - begin) + "ms");
+        System.out.println("error " + error.getWorkResult());
+        System.out.println("noisy " + noisy.getWorkResult());
+        System.out.println("after " + after.getWorkResult());
+        engine.shutdown();
+    }
+}
@@ -0,0 +1,50 @@
+package executor;
+
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.executor.PoolTag;
+import com.cong.async.wrapper.WorkerWrapper;
+
+/**
+ * 调用线程执行起点时同步的 start 仍然遵守超时：计算的节点不在调用线程上执行，超时返回 false
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class CallerRunsTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("callerRuns").callerRuns().build();
+
+        WorkerWrapper<String, String> fast = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> Thread.currentThread().getName())
+                .id("fast")
+                .build();
+        long begin = System.currentTimeMillis();
+        System.out.println("fast success=" + engine.start(100, fast) + " cost=" + (System.currentTimeMillis() - begin)
+                + "ms " + fast.getWorkResult());
+
+        //不响应中断的 3s 计算，标记为 CPU 后由 CPU 线程池执行，调用线程等到 100ms 超时返回
+        WorkerWrapper<String, String> spin = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> spin(3000))
+                .pool(PoolTag.CPU)
+                .id("spin")
+                .build();
+        WorkerWrapper<String, String> fast1 = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> Thread.currentThread().getName())
+                .id("fast")
+                .build();
+        begin = System.currentTimeMillis();
+        System.out.println("spin success=" + engine.start(100, spin, fast1) + " cost=" + (System.currentTimeMillis() - begin)
+                + "ms " + spin.getWorkResult() + " " + fast1.getWorkResult());
+        engine.shutdown();
+    }
+
+    private static String spin(long millis) {
+        long end = System.nanoTime() + millis * 1000000;
+        long count = 0;
+        while (System.nanoTime() < end) {
+            count++;
+        }
+        return "spun " + count;
+    }
+}
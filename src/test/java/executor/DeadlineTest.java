@@ -0,0 +1,48 @@
+package executor;
+
+
+import com.cong.async.executor.Async;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按指定单位设置整组超时，截止时间按纳秒计算，低于 1ms 的超时不会被截断成 0
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class DeadlineTest {
+    public static void main(String[] args) throws Exception {
+        WorkerWrapper<String, String> workerWrapper = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    sleep(5);
+                    return "done";
+                })
+                .id("sleep5")
+                .build();
+        //预热一次，排除类加载和线程创建的耗时
+        Async.start(1, TimeUnit.SECONDS, workerWrapper);
+
+        //800 微秒的预算，5ms 的节点一定超时
+        long begin = System.nanoTime();
+        boolean success = Async.start(800, TimeUnit.MICROSECONDS, workerWrapper);
+        System.out.println("800us success=" + success + " cost=" + (System.nanoTime() - begin) / 1000 + "us");
+
+        //50000 微秒的预算足够
+        begin = System.nanoTime();
+        GraphResult result = Async.startAsync(50000, TimeUnit.MICROSECONDS, GraphPlan.of(workerWrapper)).get();
+        System.out.println("50000us success=" + result.isSuccess() + " cost=" + (System.nanoTime() - begin) / 1000 + "us");
+        Async.shutDown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
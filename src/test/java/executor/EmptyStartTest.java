@@ -0,0 +1,40 @@
+package executor;
+
+
+import com.cong.async.callback.IGroupCallback;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.List;
+
+/**
+ * 没有传入 wrapper 时不抛异常：同步的 start 返回 false，异步的 startAsync 回调 failure，结果 isSuccess 为 false
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class EmptyStartTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("empty").build();
+        IGroupCallback callback = new IGroupCallback() {
+            @Override
+            public void success(List<WorkerWrapper> workerWrappers) {
+                System.out.println("success " + workerWrappers);
+            }
+
+            @Override
+            public void failure(List<WorkerWrapper> workerWrappers, Exception e) {
+                System.out.println("failure " + workerWrappers + " " + e);
+            }
+        };
+        System.out.println("start empty=" + engine.start(1000));
+        System.out.println("start null=" + engine.start(1000, (WorkerWrapper[]) null));
+
+        GraphResult empty = engine.startAsync(1000, callback).get();
+        System.out.println("startAsync empty success=" + empty.isSuccess());
+        GraphResult nothing = engine.startAsync(1000, callback, (WorkerWrapper[]) null).get();
+        System.out.println("startAsync null success=" + nothing.isSuccess());
+        engine.shutdown();
+    }
+}
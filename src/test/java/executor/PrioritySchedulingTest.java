@@ -0,0 +1,108 @@
+package executor;
+
+
+import com.cong.async.callback.IWorker;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.metrics.HistogramListener;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 关键路径优先：root 之后 8 个 10ms 的叶子和一条 6 个节点的链同时就绪，链写在最后，但链头的优先级最高。
+ * 线程池饱和时，按优先级排队的线程池让先开始的执行先完成，同一次执行中关键路径上的节点先执行
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class PrioritySchedulingTest {
+    public static void main(String[] args) throws Exception {
+        Queue<String> order = new ConcurrentLinkedQueue<>();
+        GraphPlan plan = build(order);
+        System.out.println("priority chain0=" + plan.getPriority(plan.indexOf("chain0"))
+                + " leaf0=" + plan.getPriority(plan.indexOf("leaf0")));
+
+        //编译时下游已经按优先级排好，单线程时链头紧跟 root 执行
+        ExecutorService single = Executors.newFixedThreadPool(1);
+        AsyncEngine singleEngine = AsyncEngine.builder().name("single").executor(single).build();
+        singleEngine.start(10000, plan);
+        System.out.println("order=" + order);
+        singleEngine.shutdown();
+        single.shutdown();
+
+        //4 次执行同时提交到 3 个线程：先来先执行时各次执行交替推进、一起变慢；
+        //按优先级排队时先开始的执行先完成，平均耗时更短
+        ExecutorService fifoPool = Executors.newFixedThreadPool(3);
+        AsyncEngine fifo = AsyncEngine.builder().name("fifo").executor(fifoPool).build();
+        HistogramListener listener = new HistogramListener();
+        AsyncEngine priority = AsyncEngine.builder().name("priority").priorityScheduling(3).listener(listener).build();
+        for (AsyncEngine engine : new AsyncEngine[]{fifo, priority}) {
+            //预热
+            engine.start(10000, plan);
+            List<CompletableFuture<GraphResult>> futures = new ArrayList<>();
+            long[] costs = new long[4];
+            long begin = System.currentTimeMillis();
+            for (int i = 0; i < costs.length; i++) {
+                int run = i;
+                futures.add(engine.startAsync(10000, plan)
+                        .whenComplete((result, e) -> costs[run] = System.currentTimeMillis() - begin));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+            System.out.println(engine.getName() + " costs=" + Arrays.toString(costs)
+                    + "ms avg=" + Arrays.stream(costs).sum() / costs.length + "ms");
+        }
+
+        //按实测耗时重新计算优先级
+        plan.updatePriorities(listener.executionCost());
+        System.out.println("measured priority chain0=" + plan.getPriority(plan.indexOf("chain0"))
+                + " leaf0=" + plan.getPriority(plan.indexOf("leaf0")));
+        fifo.shutdown();
+        fifoPool.shutdown();
+        priority.shutdown();
+    }
+
+    private static GraphPlan build(Queue<String> order) {
+        List<WorkerWrapper<?, ?>> next = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            next.add(new WorkerWrapper.Builder<String, String>().id("leaf" + i).worker(sleep("leaf" + i, 10, order)).build());
+        }
+        WorkerWrapper<String, String> tail = null;
+        for (int i = 5; i >= 0; i--) {
+            WorkerWrapper.Builder<String, String> builder = new WorkerWrapper.Builder<String, String>()
+                    .id("chain" + i)
+                    .worker(sleep("chain" + i, 10, order));
+            if (tail != null) {
+                builder.next(tail);
+            }
+            tail = builder.build();
+        }
+        next.add(tail);
+        WorkerWrapper<String, String> root = new WorkerWrapper.Builder<String, String>()
+                .id("root")
+                .worker(sleep("root", 0, order))
+                .next(next.toArray(new WorkerWrapper<?, ?>[0]))
+                .build();
+        return GraphPlan.of(root);
+    }
+
+    private static IWorker<String, String> sleep(String id, long millis, Queue<String> order) {
+        return (object, allWrappers) -> {
+            order.add(id);
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                return "interrupted";
+            }
+            return "slept " + millis;
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package executor;
+
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池拒绝派发时，节点以 REJECTED 结束，整组立即结束而不是等到超时
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class RejectedDispatchTest {
+    public static void main(String[] args) throws Exception {
+        //只有一个线程、没有队列、拒绝策略是 AbortPolicy 的线程池
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+        AsyncEngine engine = AsyncEngine.builder().name("rejected").executor(pool).build();
+
+        WorkerWrapper<String, String> b = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> sleep(100, "b"))
+                .id("b")
+                .build();
+        WorkerWrapper<String, String> c = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> sleep(100, "c"))
+                .id("c")
+                .build();
+        WorkerWrapper<String, String> a = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> "a")
+                .id("a")
+                .next(b, c)
+                .build();
+
+        long begin = System.currentTimeMillis();
+        boolean success = engine.start(2000, a);
+        System.out.println("success=" + success + " cost=" + (System.currentTimeMillis() - begin) + "ms");
+        System.out.println("b " + b.getWorkResult());
+        System.out.println("c " + c.getWorkResult());
+        engine.shutdown();
+        pool.shutdown();
+    }
+
+    private static String sleep(long millis, String value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            return "interrupted";
+        }
+        return value;
+    }
+}
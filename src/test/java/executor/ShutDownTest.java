@@ -0,0 +1,53 @@
+package executor;
+
+
+import com.cong.async.executor.Async;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.wrapper.WorkerWrapper;
+
+/**
+ * Async.shutDown() 之后静态方法仍然可用：关闭的默认引擎不再复用，下次使用时重新创建默认引擎和线程池，
+ * 新引擎的定时器正常工作，超时仍然生效
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ShutDownTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine before = Async.getDefaultEngine();
+        System.out.println("before shutDown success=" + Async.start(1000, fast()));
+        Async.shutDown();
+
+        //wrapper 只能执行一次，每次使用新的
+        WorkerWrapper<String, String> fast = fast();
+        System.out.println("after shutDown success=" + Async.start(1000, fast) + " " + fast.getWorkResult());
+        WorkerWrapper<String, String> slow = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    sleep(1000);
+                    return "slow";
+                })
+                .id("slow")
+                .build();
+        long begin = System.currentTimeMillis();
+        boolean success = Async.start(100, slow);
+        System.out.println("timeout after shutDown success=" + success + " cost=" + (System.currentTimeMillis() - begin)
+                + "ms " + slow.getWorkResult());
+        System.out.println("new engine=" + (Async.getDefaultEngine() != before));
+        Async.shutDown();
+    }
+
+    private static WorkerWrapper<String, String> fast() {
+        return new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> "fast")
+                .id("fast")
+                .build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package executor;
+
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.executor.VirtualThreads;
+import com.cong.async.wrapper.WorkerWrapper;
+
+/**
+ * 虚拟线程模式：不支持的运行环境在配置时就失败，支持时每个节点运行在自己的虚拟线程上
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class VirtualThreadsTest {
+    public static void main(String[] args) throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            try {
+                AsyncEngine.builder().virtualThreads();
+                System.out.println("virtualThreads() should fail on " + System.getProperty("java.version"));
+            } catch (UnsupportedOperationException e) {
+                System.out.println("virtualThreads() rejected on " + System.getProperty("java.version") + ": " + e.getMessage());
+            }
+            return;
+        }
+
+        AsyncEngine engine = AsyncEngine.builder().name("virtual").virtualThreads().build();
+        WorkerWrapper<String, String> workerWrapper = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> Thread.currentThread().toString())
+                .build();
+        System.out.println(engine.start(1000, workerWrapper) + " " + workerWrapper.getWorkResult());
+        engine.shutdown();
+    }
+}
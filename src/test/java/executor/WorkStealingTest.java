@@ -0,0 +1,113 @@
+package executor;
+
+
+import com.cong.async.callback.IBatchWorker;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.policy.RetryPolicy;
+import com.cong.async.worker.ResultState;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 4 个线程的工作窃取线程池执行 32 个并行的 50ms 阻塞节点：标记为阻塞的普通节点、重试的节点和批量节点都在阻塞期间补充线程，
+ * 整组约 50ms~100ms 结束，而不是按 4 个线程排队的 400ms
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class WorkStealingTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("workStealing").workStealing(4).build();
+
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<WorkerWrapper<?, ?>> blocking = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            blocking.add(new WorkerWrapper.Builder<String, String>()
+                    .worker((object, allWrappers) -> sleep(50, threads))
+                    .blocking()
+                    .id("blocking" + i)
+                    .build());
+        }
+        run(engine, "blocking", blocking, threads);
+
+        //第一次调用失败，重试一次后成功
+        Set<String> retryThreads = ConcurrentHashMap.newKeySet();
+        List<WorkerWrapper<?, ?>> retried = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            AtomicInteger attempts = new AtomicInteger();
+            retried.add(new WorkerWrapper.Builder<String, String>()
+                    .worker((object, allWrappers) -> {
+                        String result = sleep(50, retryThreads);
+                        if (attempts.incrementAndGet() == 1) {
+                            throw new IllegalStateException("first attempt fails");
+                        }
+                        return result;
+                    })
+                    .retry(RetryPolicy.builder().maxAttempts(2).backoff(1, 1).build())
+                    .blocking()
+                    .id("retried" + i)
+                    .build());
+        }
+        run(engine, "retried", retried, retryThreads);
+
+        //每批只有一个 key，32 个批次同时阻塞
+        Set<String> batchThreads = ConcurrentHashMap.newKeySet();
+        IBatchWorker<Integer, String> batchWorker = new IBatchWorker<Integer, String>() {
+            @Override
+            public List<String> batchAction(List<Integer> keys) {
+                return Collections.singletonList(sleep(50, batchThreads));
+            }
+
+            @Override
+            public int maxBatchSize() {
+                return 1;
+            }
+        };
+        List<WorkerWrapper<?, ?>> batched = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            batched.add(new WorkerWrapper.Builder<Integer, String>()
+                    .worker(batchWorker)
+                    .param(i)
+                    .id("batched" + i)
+                    .build());
+        }
+        run(engine, "batched", batched, batchThreads);
+        engine.shutdown();
+    }
+
+    private static void run(AsyncEngine engine, String name, List<WorkerWrapper<?, ?>> nodes, Set<String> threads) throws Exception {
+        WorkerWrapper<String, String> root = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> "root")
+                .id("root")
+                .next(nodes.toArray(new WorkerWrapper[0]))
+                .build();
+        long begin = System.currentTimeMillis();
+        ExecutionContext context = engine.start(5000, GraphPlan.of(root));
+        int success = 0;
+        for (WorkerWrapper<?, ?> node : nodes) {
+            if (context.getWorkResult(node.getId()).getResultState() == ResultState.SUCCESS) {
+                success++;
+            }
+        }
+        System.out.println(name + " success=" + success + " cost=" + (System.currentTimeMillis() - begin)
+                + "ms threads=" + threads.size());
+    }
+
+    private static String sleep(long millis, Set<String> threads) {
+        threads.add(Thread.currentThread().getName());
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            return "interrupted";
+        }
+        return "slept";
+    }
+}
@@ -0,0 +1,72 @@
+package limit;
+
+
+import com.cong.async.callback.DefaultGroupCallback;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.limit.ConcurrencyLimiter;
+import com.cong.async.worker.GraphResult;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并发限制：同时执行的 action 不超过上限，超出的排队(不占线程)，队列满了直接以 REJECTED 结束；
+ * 自适应的上限在调用失败时回退
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ConcurrencyLimiterTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("limit").build();
+        //上限 2，队列 2：同时来 6 个，2 个执行，2 个排队，2 个被拒绝
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limit(2).queueCapacity(2).build();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<WorkerWrapper<String, String>> wrappers = new ArrayList<>();
+        List<CompletableFuture<GraphResult>> futures = new ArrayList<>();
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < 6; i++) {
+            WorkerWrapper<String, String> call = new WorkerWrapper.Builder<String, String>()
+                    .worker((String object, Map<String, WorkerWrapper> allWrappers) -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                        return object + " done at " + (System.currentTimeMillis() - begin) + "ms";
+                    })
+                    .limiter(limiter)
+                    .param("call" + i)
+                    .build();
+            wrappers.add(call);
+            futures.add(engine.startAsync(1000, new DefaultGroupCallback(), call));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        for (WorkerWrapper<String, String> wrapper : wrappers) {
+            System.out.println(wrapper.getWorkResult());
+        }
+        System.out.println("maxRunning=" + maxRunning.get() + " " + limiter);
+
+        //自适应：初始上限 8，连续失败后按 0.5 回退，直到下限 2
+        ConcurrencyLimiter adaptive = ConcurrencyLimiter.builder().limit(8).adaptive(2, 16).backoffRatio(0.5).build();
+        for (int i = 0; i < 4; i++) {
+            WorkerWrapper<String, String> failing = new WorkerWrapper.Builder<String, String>()
+                    .worker((String object, Map<String, WorkerWrapper> allWrappers) -> {
+                        throw new IllegalStateException("downstream overloaded");
+                    })
+                    .limiter(adaptive)
+                    .build();
+            engine.start(1000, failing);
+            System.out.println("after failure " + (i + 1) + " limit=" + adaptive.getLimit());
+        }
+        engine.shutdown();
+    }
+}
@@ -0,0 +1,75 @@
+package metrics;
+
+
+import com.cong.async.callback.IWorker;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.metrics.HistogramListener;
+import com.cong.async.metrics.LatencyHistogram;
+import com.cong.async.metrics.NodeMetrics;
+import com.cong.async.worker.ResultState;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 wrapper id 统计排队等待、执行耗时和结果状态；直方图的分位数误差不超过 1/16
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class HistogramTest {
+    public static void main(String[] args) throws Exception {
+        //1us 到 1000us 各一次，分位数按桶的上界返回：p50 约 500us，p99 约 1000us
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        System.out.println("p50=" + histogram.percentile(0.5) / 1000 + "us p99=" + histogram.percentile(0.99) / 1000
+                + "us max=" + histogram.getMax() / 1000 + "us mean=" + (long) histogram.getMean() / 1000 + "us");
+
+        //单线程的线程池：A、B 同时就绪，后执行的那个要排队约 20ms
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        HistogramListener listener = new HistogramListener();
+        AsyncEngine engine = AsyncEngine.builder().name("metrics").executor(pool).listener(listener).build();
+        for (int i = 0; i < 10; i++) {
+            WorkerWrapper<String, String> a = new WorkerWrapper.Builder<String, String>().id("A").worker(sleep(20)).build();
+            WorkerWrapper<String, String> b = new WorkerWrapper.Builder<String, String>().id("B").worker(sleep(20)).build();
+            WorkerWrapper<String, String> fail = new WorkerWrapper.Builder<String, String>().id("fail")
+                    .worker((object, allWrappers) -> {
+                        throw new IllegalStateException("boom");
+                    })
+                    .build();
+            engine.start(1000, a, b, fail);
+        }
+        //单独执行 10 次超时的节点
+        for (int i = 0; i < 10; i++) {
+            WorkerWrapper<String, String> slow = new WorkerWrapper.Builder<String, String>().id("slow").worker(sleep(200)).build();
+            engine.start(10, slow);
+        }
+
+        for (String id : new String[]{"A", "B", "fail", "slow"}) {
+            NodeMetrics metrics = listener.getNodeMetrics(id);
+            System.out.println(id + " success=" + metrics.getCount(ResultState.SUCCESS)
+                    + " exception=" + metrics.getCount(ResultState.EXCEPTION)
+                    + " timeout=" + metrics.getCount(ResultState.TIMEOUT)
+                    + " queueWait p50=" + metrics.getQueueWait().percentile(0.5) / 1000000 + "ms max=" + metrics.getQueueWait().getMax() / 1000000
+                    + "ms execution p50=" + metrics.getExecution().percentile(0.5) / 1000000 + "ms");
+        }
+        System.out.println("group count=" + listener.getGroup().getCount() + " p50=" + listener.getGroup().percentile(0.5) / 1000000 + "ms");
+        engine.shutdown();
+        pool.shutdownNow();
+    }
+
+    private static IWorker<String, String> sleep(long millis) {
+        return (object, allWrappers) -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                return "interrupted";
+            }
+            return "slept " + millis;
+        };
+    }
+}
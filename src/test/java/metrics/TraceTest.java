@@ -0,0 +1,56 @@
+package metrics;
+
+
+import com.cong.async.callback.IWorker;
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.metrics.ExecutionTrace;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 追踪一次执行，打印关键路径和 Chrome trace；超时的执行中没有就绪的节点不在关键路径上
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class TraceTest {
+    public static void main(String[] args) throws Exception {
+        BlockingQueue<ExecutionTrace> traces = new LinkedBlockingQueue<>();
+        AsyncEngine engine = AsyncEngine.builder().name("trace").tracing(1.0, traces::add).build();
+
+        //A -> {B(50ms), C(10ms)} -> D，关键路径是 A B D
+        WorkerWrapper<String, String> d = new WorkerWrapper.Builder<String, String>().id("D").worker(sleep(5)).build();
+        WorkerWrapper<String, String> b = new WorkerWrapper.Builder<String, String>().id("B").worker(sleep(50)).next(d).build();
+        WorkerWrapper<String, String> c = new WorkerWrapper.Builder<String, String>().id("C").worker(sleep(10)).next(d).build();
+        WorkerWrapper<String, String> a = new WorkerWrapper.Builder<String, String>().id("A").worker(sleep(5)).next(b, c).build();
+        engine.start(1000, a);
+        ExecutionTrace trace = traces.poll(1, TimeUnit.SECONDS);
+        System.out.println(trace.criticalPathIds() + " " + trace.getDurationNanos() / 1000 + "us");
+        System.out.println(trace.toChromeTrace());
+
+        //A -> {B(200ms) -> C, X}，50ms 超时，C 没有就绪过，关键路径是 A B，C 是一个瞬时事件
+        WorkerWrapper<String, String> c1 = new WorkerWrapper.Builder<String, String>().id("C").worker(sleep(5)).build();
+        WorkerWrapper<String, String> b1 = new WorkerWrapper.Builder<String, String>().id("B").worker(sleep(200)).next(c1).build();
+        WorkerWrapper<String, String> x1 = new WorkerWrapper.Builder<String, String>().id("X").worker(sleep(5)).build();
+        WorkerWrapper<String, String> a1 = new WorkerWrapper.Builder<String, String>().id("A").worker(sleep(5)).next(b1, x1).build();
+        System.out.println("timeout success=" + engine.start(50, a1));
+        trace = traces.poll(1, TimeUnit.SECONDS);
+        System.out.println(trace.criticalPathIds());
+        System.out.println(trace.toChromeTrace());
+        engine.shutdown();
+    }
+
+    private static IWorker<String, String> sleep(long millis) {
+        return (object, allWrappers) -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                return "interrupted";
+            }
+            return "slept " + millis;
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package plan;
+
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.executor.PoolTag;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 线性链的融合：只依赖上一个节点的下游直接在当前线程接着执行，不经过依赖计数和线程池，也不会递归加深调用栈；
+ * 下游属于别的线程池时在边界处派发出去；链中间失败时后面的节点依次快速失败
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ChainFusionTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("chain").build();
+
+        //20000 个节点的链，每个节点在入参上加一，全部在同一个线程上执行
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        WorkerWrapper<Integer, Integer> head = chain(20000, threads, -1);
+        GraphPlan plan = GraphPlan.of(head);
+        for (int i = 0; i < 5; i++) {
+            threads.clear();
+            long begin = System.nanoTime();
+            ExecutionContext context = engine.start(10000, plan);
+            System.out.println("cost=" + (System.nanoTime() - begin) / 1000 + "us last=" + context.getWorkResult("n19999")
+                    + " threads=" + threads.size());
+        }
+
+        //第 500 个节点失败，后面的 19499 个节点依次快速失败，同样不会栈溢出
+        WorkerWrapper<Integer, Integer> failing = chain(20000, threads, 500);
+        ExecutionContext context = engine.start(10000, GraphPlan.of(failing));
+        System.out.println("n499=" + context.getWorkResult("n499").getResultState() + " n500=" + context.getWorkResult("n500").getResultState()
+                + " n19999=" + context.getWorkResult("n19999").getResultState());
+
+        //default -> io -> default：节点属于另一个线程池时在边界处派发，不会被融合到当前线程上
+        ExecutorService io = Executors.newFixedThreadPool(1, runnable -> new Thread(runnable, "io-pool"));
+        AsyncEngine routed = AsyncEngine.builder().name("routed").ioExecutor(io).build();
+        Map<String, String> runOn = new ConcurrentHashMap<>();
+        WorkerWrapper<String, String> c = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> runOn.put("c", Thread.currentThread().getName()))
+                .id("c")
+                .build();
+        WorkerWrapper<String, String> b = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> runOn.put("b", Thread.currentThread().getName()))
+                .pool(PoolTag.IO)
+                .id("b")
+                .next(c)
+                .build();
+        WorkerWrapper<String, String> a = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> runOn.put("a", Thread.currentThread().getName()))
+                .id("a")
+                .next(b)
+                .build();
+        routed.start(1000, a);
+        System.out.println("a on " + runOn.get("a") + ", b on " + runOn.get("b") + ", c on " + runOn.get("c"));
+        routed.shutdown();
+        io.shutdown();
+        engine.shutdown();
+    }
+
+    /**
+     * 长度为 length 的链，第 failAt 个节点抛出异常，为 -1 时都成功
+     */
+    private static WorkerWrapper<Integer, Integer> chain(int length, Set<String> threads, int failAt) {
+        WorkerWrapper<Integer, Integer> current = null;
+        for (int i = length - 1; i >= 0; i--) {
+            int position = i;
+            WorkerWrapper.Builder<Integer, Integer> builder = new WorkerWrapper.Builder<Integer, Integer>()
+                    .worker((Integer param, Map<String, WorkerWrapper> allWrappers) -> {
+                        threads.add(Thread.currentThread().getName());
+                        if (position == failAt) {
+                            throw new IllegalStateException("n" + position + " failed");
+                        }
+                        return param + 1;
+                    })
+                    .param(i)
+                    .id("n" + i);
+            if (current != null) {
+                builder.next(current);
+            }
+            current = builder.build();
+        }
+        return current;
+    }
+}
@@ -0,0 +1,58 @@
+package plan;
+
+
+import com.cong.async.executor.Async;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 编译一次执行计划，多次执行
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class PlanTest {
+    public static void main(String[] args) throws Exception {
+        WorkerWrapper<String, String> workerWrapper2 = new WorkerWrapper.Builder<String, String>()
+                .worker((String object, Map<String, WorkerWrapper> allWrappers) -> "third-" + object)
+                .param("2")
+                .id("third")
+                .build();
+
+        WorkerWrapper<String, String> workerWrapper1 = new WorkerWrapper.Builder<String, String>()
+                .worker((String object, Map<String, WorkerWrapper> allWrappers) -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    return "second-" + object;
+                })
+                .param("1")
+                .id("second")
+                .next(workerWrapper2)
+                .build();
+
+        WorkerWrapper<String, String> workerWrapper = new WorkerWrapper.Builder<String, String>()
+                .worker((String object, Map<String, WorkerWrapper> allWrappers) -> "first-" + object)
+                .param("0")
+                .id("first")
+                .next(workerWrapper1, workerWrapper2)
+                .build();
+
+        GraphPlan plan = GraphPlan.of(workerWrapper);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 3; i++) {
+            ExecutionContext context = new ExecutionContext(plan, pool, 1000);
+            context.setParam(plan.indexOf("first"), "run" + i);
+            Async.start(context);
+            System.out.println(context.getWorkResult("first") + " " + context.getWorkResult("third"));
+        }
+        Async.shutDown(pool);
+    }
+}
@@ -0,0 +1,79 @@
+package plan;
+
+
+import com.cong.async.callback.IContextWorker;
+import com.cong.async.executor.Async;
+import com.cong.async.worker.ResultKey;
+import com.cong.async.worker.WorkResult;
+import com.cong.async.worker.WorkerContext;
+import com.cong.async.wrapper.ExecutionContext;
+import com.cong.async.wrapper.GraphPlan;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 通过 ResultKey 读取上游结果，同时兼容基于 Map 的 worker
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class ResultKeyTest {
+    private static final ResultKey<Integer> FIRST = ResultKey.of("first");
+    private static final ResultKey<String> SECOND = ResultKey.of("second");
+
+    public static void main(String[] args) throws Exception {
+        WorkerWrapper<String, String> workerWrapper2 = new WorkerWrapper.Builder<String, String>()
+                .contextWorker((String object, WorkerContext context) -> {
+                    Integer first = context.getResult(FIRST);
+                    String second = context.getResult(SECOND);
+                    return second + " / " + (first + 1);
+                })
+                .id("third")
+                .build();
+
+        WorkerWrapper<String, String> workerWrapper1 = new WorkerWrapper.Builder<String, String>()
+                .worker((String object, Map<String, WorkerWrapper> allWrappers) -> {
+                    WorkResult<?> first = allWrappers.get("first").getWorkResult();
+                    return "second got " + first.getResult();
+                })
+                .resultKey(SECOND)
+                .next(workerWrapper2)
+                .build();
+
+        WorkerWrapper<String, Integer> workerWrapper = new WorkerWrapper.Builder<String, Integer>()
+                .worker(new IContextWorker<String, Integer>() {
+                    @Override
+                    public Integer action(String object, WorkerContext context) {
+                        return Integer.parseInt(object);
+                    }
+                })
+                .param("41")
+                .resultKey(FIRST)
+                .next(workerWrapper1)
+                .build();
+
+        Async.start(1000, workerWrapper);
+        System.out.println(workerWrapper2.getWorkResult());
+
+        ExecutionContext context = Async.start(1000, GraphPlan.of(workerWrapper));
+        System.out.println(context.getWorkResult(workerWrapper2.getResultKey()));
+
+        //同一个句柄在两个计划间交替使用，每个计划都读到自己的结果
+        GraphPlan planA = GraphPlan.of(workerWrapper);
+        GraphPlan planB = GraphPlan.of(workerWrapper);
+        for (int i = 0; i < 3; i++) {
+            ExecutionContext a = Async.start(1000, planA);
+            ExecutionContext b = Async.start(1000, planB);
+            System.out.println(a.getWorkResult(SECOND).getResult() + " | " + b.getWorkResult(SECOND).getResult());
+        }
+
+        //不经过框架，直接按 Map 调用 IContextWorker，按 id 从 wrapper 上读取上游结果
+        IContextWorker<String, String> direct = (String object, WorkerContext ctx) -> ctx.getResult(SECOND) + " / direct";
+        Map<String, WorkerWrapper> allWrappers = new HashMap<>();
+        allWrappers.put("second", workerWrapper1);
+        System.out.println(direct.action("x", allWrappers));
+        Async.shutDown();
+    }
+}
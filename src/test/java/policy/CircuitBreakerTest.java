@@ -0,0 +1,50 @@
+package policy;
+
+
+import com.cong.async.executor.time.Clock;
+import com.cong.async.executor.time.ManualClock;
+import com.cong.async.policy.CircuitBreaker;
+import com.cong.async.worker.ResultState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熔断器的状态变化：失败率超过阈值后熔断，熔断时间过后放行有限的探测，探测都成功后恢复。
+ * 时钟从负数开始，和 System.nanoTime 可能的取值一样
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class CircuitBreakerTest {
+    public static void main(String[] args) {
+        ManualClock manual = Clock.manual();
+        Clock clock = () -> manual.nanoTime() - TimeUnit.HOURS.toNanos(1);
+        CircuitBreaker breaker = CircuitBreaker.builder()
+                .minimumCalls(10)
+                .failureRateThreshold(0.5)
+                .openDuration(5000)
+                .halfOpenProbes(2)
+                .clock(clock)
+                .build();
+
+        //10 次调用失败 6 次，熔断
+        for (int i = 0; i < 10; i++) {
+            CircuitBreaker.Permit permit = breaker.tryAcquire();
+            manual.advance(10, TimeUnit.MILLISECONDS);
+            breaker.record(permit, i < 6 ? ResultState.EXCEPTION : ResultState.SUCCESS);
+        }
+        System.out.println("tripped   " + breaker + " permit=" + breaker.tryAcquire());
+
+        //熔断时间过后只放行 2 个探测
+        manual.advance(5, TimeUnit.SECONDS);
+        CircuitBreaker.Permit first = breaker.tryAcquire();
+        CircuitBreaker.Permit second = breaker.tryAcquire();
+        CircuitBreaker.Permit third = breaker.tryAcquire();
+        System.out.println("half-open " + breaker + " probes=" + (first != null) + "," + (second != null) + "," + (third != null));
+
+        //探测都成功，恢复
+        breaker.record(first, ResultState.SUCCESS);
+        breaker.record(second, ResultState.SUCCESS);
+        System.out.println("recovered " + breaker + " permit=" + (breaker.tryAcquire() != null));
+    }
+}
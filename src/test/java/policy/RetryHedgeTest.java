@@ -0,0 +1,94 @@
+package policy;
+
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.policy.HedgePolicy;
+import com.cong.async.policy.RetryPolicy;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 重试和对冲：失败后按退避重试；慢调用被对冲，赢家出现后输家被中断；整组超时中断正在执行的调用；worker 抛出 Error 时节点立即结束
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class RetryHedgeTest {
+    public static void main(String[] args) throws Exception {
+        AsyncEngine engine = AsyncEngine.builder().name("retryHedge").build();
+
+        //前两次失败，第三次成功
+        AtomicInteger calls = new AtomicInteger();
+        WorkerWrapper<String, String> retried = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    int call = calls.incrementAndGet();
+                    if (call < 3) {
+                        throw new IllegalStateException("call " + call + " fails");
+                    }
+                    return "call " + call;
+                })
+                .retry(RetryPolicy.builder().maxAttempts(3).backoff(10, 100).build())
+                .id("retried")
+                .build();
+        engine.start(1000, retried);
+        System.out.println("retry  " + retried.getWorkResult());
+
+        //第一次调用很慢，20ms 后发起的对冲先返回，第一次调用被中断
+        AtomicInteger hedgeCalls = new AtomicInteger();
+        CountDownLatch loserInterrupted = new CountDownLatch(1);
+        WorkerWrapper<String, String> hedged = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    int call = hedgeCalls.incrementAndGet();
+                    if (call == 1) {
+                        try {
+                            Thread.sleep(1000);
+                        } catch (InterruptedException e) {
+                            loserInterrupted.countDown();
+                        }
+                    }
+                    return "call " + call;
+                })
+                .hedge(HedgePolicy.builder().delay(20).build())
+                .id("hedged")
+                .build();
+        long begin = System.currentTimeMillis();
+        engine.start(2000, hedged);
+        System.out.println("hedge  " + hedged.getWorkResult() + " cost=" + (System.currentTimeMillis() - begin)
+                + "ms loserInterrupted=" + loserInterrupted.await(500, TimeUnit.MILLISECONDS));
+
+        //整组 100ms 超时，正在重试的调用被中断
+        CountDownLatch attemptInterrupted = new CountDownLatch(1);
+        WorkerWrapper<String, String> slow = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    try {
+                        Thread.sleep(2000);
+                    } catch (InterruptedException e) {
+                        attemptInterrupted.countDown();
+                    }
+                    return "slow";
+                })
+                .retry(RetryPolicy.builder().maxAttempts(3).build())
+                .id("slow")
+                .build();
+        begin = System.currentTimeMillis();
+        boolean success = engine.start(100, slow);
+        System.out.println("timeout success=" + success + " " + slow.getWorkResult() + " cost=" + (System.currentTimeMillis() - begin)
+                + "ms attemptInterrupted=" + attemptInterrupted.await(500, TimeUnit.MILLISECONDS));
+
+        //Error 也会结束节点，而不是让节点一直等到超时
+        WorkerWrapper<String, String> error = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    throw new AssertionError("broken");
+                })
+                .retry(RetryPolicy.builder().maxAttempts(2).retryOn(e -> e instanceof Exception).build())
+                .id("error")
+                .build();
+        begin = System.currentTimeMillis();
+        engine.start(2000, error);
+        System.out.println("error  " + error.getWorkResult() + " cost=" + (System.currentTimeMillis() - begin) + "ms");
+        engine.shutdown();
+    }
+}
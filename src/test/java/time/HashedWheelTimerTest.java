@@ -0,0 +1,109 @@
+package time;
+
+
+import com.cong.async.executor.AsyncEngine;
+import com.cong.async.executor.time.HashedWheelTimer;
+import com.cong.async.wrapper.WorkerWrapper;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间轮：按到期时间执行任务(包括超过一圈的任务)，取消的任务不会执行并且会从槽中摘除；
+ * 节点超时由时间轮触发，线程池被占满时也能按时生效，按时结束的节点会取消自己的超时任务
+ *
+ * @author cong
+ * @date 2026/10/18
+ */
+public class HashedWheelTimerTest {
+    public static void main(String[] args) throws Exception {
+        //8 格 * 10ms，一圈 80ms
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        long begin = System.nanoTime();
+        CountDownLatch latch = new CountDownLatch(3);
+        for (long delay : new long[]{200, 30, 100}) {
+            timer.newTimeout(() -> {
+                System.out.println("delay " + delay + "ms fired at " + (System.nanoTime() - begin) / 1000000 + "ms");
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        HashedWheelTimer.Timeout cancelled = timer.newTimeout(() -> System.out.println("cancelled task should not run"),
+                50, TimeUnit.MILLISECONDS);
+        System.out.println("cancel=" + cancelled.cancel() + " cancelAgain=" + cancelled.cancel());
+        latch.await();
+        System.out.println("cancelled=" + cancelled.isCancelled() + " expired=" + cancelled.isExpired()
+                + " pending=" + timer.pendingCount());
+
+        //取消很多任务后，它们在下一格就从槽中摘除，不会等到期时间到了才清理
+        HashedWheelTimer.Timeout[] timeouts = new HashedWheelTimer.Timeout[10000];
+        for (int i = 0; i < timeouts.length; i++) {
+            timeouts[i] = timer.newTimeout(() -> System.out.println("should not run"), 10, TimeUnit.MINUTES);
+        }
+        Thread.sleep(30);
+        System.out.println("before cancel pending=" + timer.pendingCount());
+        for (HashedWheelTimer.Timeout timeout : timeouts) {
+            timeout.cancel();
+        }
+        Thread.sleep(30);
+        System.out.println("after cancel pending=" + timer.pendingCount());
+        timer.stop();
+
+        //节点超时：slow 在 50ms 时以 TIMEOUT 结束，依赖它的 next 随即推进(同样以 TIMEOUT 结束)，不用等整组超时；
+        //fast 按时结束后取消自己的超时任务
+        AsyncEngine engine = AsyncEngine.builder().name("timeout").build();
+        WorkerWrapper<String, String> next = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> "next ran")
+                .id("next")
+                .build();
+        WorkerWrapper<String, String> slow = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    sleep(1000);
+                    return "slow";
+                })
+                .timeout(50)
+                .id("slow")
+                .next(next)
+                .build();
+        WorkerWrapper<String, String> fast = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> "fast")
+                .timeout(10000)
+                .id("fast")
+                .build();
+        long start = System.currentTimeMillis();
+        engine.start(1000, slow, fast);
+        System.out.println("cost=" + (System.currentTimeMillis() - start) + "ms slow=" + slow.getWorkResult()
+                + " next=" + next.getWorkResult() + " fast=" + fast.getWorkResult());
+        Thread.sleep(50);
+        System.out.println("engine timer pending=" + engine.getTimer().pendingCount());
+        engine.shutdown();
+
+        //只有一个线程、正被超时的节点自己占着：超时在时间轮线程上结束节点并中断它，不用等线程空出来
+        ExecutorService single = Executors.newFixedThreadPool(1);
+        AsyncEngine busy = AsyncEngine.builder().name("busy").executor(single).build();
+        WorkerWrapper<String, String> blocked = new WorkerWrapper.Builder<String, String>()
+                .worker((object, allWrappers) -> {
+                    sleep(2000);
+                    return "blocked";
+                })
+                .timeout(100)
+                .id("blocked")
+                .build();
+        start = System.currentTimeMillis();
+        boolean success = busy.start(5000, blocked);
+        System.out.println("single thread success=" + success + " cost=" + (System.currentTimeMillis() - start)
+                + "ms " + blocked.getWorkResult());
+        busy.shutdown();
+        single.shutdown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}